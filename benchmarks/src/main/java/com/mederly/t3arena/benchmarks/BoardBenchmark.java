@@ -0,0 +1,87 @@
+package com.mederly.t3arena.benchmarks;
+
+import com.mederly.t3arena.Board;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.mederly.t3arena.Board.PLAYER_O;
+import static com.mederly.t3arena.Board.PLAYER_X;
+
+/**
+ *  Basic operations on the board.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    /**
+     * Boards in various stages of a game: empty, opening, middle game, won by X, won by O, tie.
+     */
+    private Board[] boards;
+
+    @Setup
+    public void setup() {
+        boards = new Board[] {
+                board(),
+                board(5),
+                board(5, 1, 9, 3),
+                board(1, 4, 2, 5, 3),
+                board(5, 1, 9, 2, 4, 3),
+                board(1, 2, 3, 5, 4, 6, 8, 7, 9)
+        };
+    }
+
+    private static Board board(int... moves) {
+        Board board = new Board();
+        byte player = PLAYER_X;
+        for (int move : moves) {
+            board.registerMove(player, move);
+            player = player == PLAYER_X ? PLAYER_O : PLAYER_X;
+        }
+        return board;
+    }
+
+    @Benchmark
+    public void registerMove(Blackhole blackhole) {
+        // copying the board is included, as the move would otherwise fail on the second invocation
+        Board board = new Board(boards[2]);
+        board.registerMove(PLAYER_O, 7);
+        blackhole.consume(board);
+    }
+
+    @Benchmark
+    public void getWinner(Blackhole blackhole) {
+        for (Board board : boards) {
+            blackhole.consume(board.getWinner());
+        }
+    }
+
+    @Benchmark
+    public void getFreeFields(Blackhole blackhole) {
+        for (Board board : boards) {
+            List<Integer> freeFields = board.getFreeFields();
+            blackhole.consume(freeFields);
+        }
+    }
+
+    @Benchmark
+    public void getFreeFieldsMask(Blackhole blackhole) {
+        for (Board board : boards) {
+            blackhole.consume(board.getFreeFieldsMask());
+        }
+    }
+
+    @Benchmark
+    public void getCanonicalKey(Blackhole blackhole) {
+        for (Board board : boards) {
+            blackhole.consume(board.getCanonicalKey());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.mederly.t3arena.benchmarks;
+
+import com.mederly.t3arena.Player;
+import com.mederly.t3arena.players.FirstMoveSelector;
+import com.mederly.t3arena.players.RandomMoveSelector;
+import com.mederly.t3arena.players.RandomPlayer;
+import com.mederly.t3arena.players.SequentialPlayer;
+import com.mederly.t3arena.players.minimax.MinimaxPlayer;
+import com.mederly.t3arena.players.stat.CompleteStatisticsDataSource;
+import com.mederly.t3arena.players.stat.NotLoseRatioSelector;
+import com.mederly.t3arena.players.stat.StatisticalPlayer;
+import com.mederly.t3arena.players.stat.WinRatioSelector;
+
+/**
+ *  Players bundled with T3 Arena, in configurations used by the Arena class.
+ */
+public enum BundledPlayer {
+
+    SEQUENTIAL {
+        @Override
+        public Player create() {
+            return new SequentialPlayer("Sequential");
+        }
+    },
+
+    RANDOM {
+        @Override
+        public Player create() {
+            return new RandomPlayer("Random");
+        }
+    },
+
+    MINIMAX_FIRST {
+        @Override
+        public Player create() {
+            return new MinimaxPlayer("MinimaxFirst", new FirstMoveSelector());
+        }
+    },
+
+    MINIMAX_RANDOM {
+        @Override
+        public Player create() {
+            return new MinimaxPlayer("MinimaxRandom", new RandomMoveSelector());
+        }
+    },
+
+    MINIMAX_ALPHA_BETA {
+        @Override
+        public Player create() {
+            return new MinimaxPlayer("MinimaxAlphaBeta", new RandomMoveSelector(), MinimaxPlayer.Mode.ALPHA_BETA);
+        }
+    },
+
+    STATISTICS_WIN {
+        @Override
+        public Player create() {
+            return new StatisticalPlayer("CompleteStatistics-Win", getCompleteStatistics(),
+                    new WinRatioSelector(), new RandomMoveSelector());
+        }
+    },
+
+    STATISTICS_NOT_LOSE {
+        @Override
+        public Player create() {
+            return new StatisticalPlayer("CompleteStatistics-NotLose", getCompleteStatistics(),
+                    new NotLoseRatioSelector(), new RandomMoveSelector());
+        }
+    };
+
+    private static CompleteStatisticsDataSource completeStatistics;
+
+    public abstract Player create();
+
+    private static synchronized CompleteStatisticsDataSource getCompleteStatistics() {
+        if (completeStatistics == null) {
+            completeStatistics = new CompleteStatisticsDataSource();
+        }
+        return completeStatistics;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mederly.t3arena.benchmarks;
+
+import com.mederly.t3arena.BoardGeometry;
+import com.mederly.t3arena.Game;
+import com.mederly.t3arena.Player;
+import com.mederly.t3arena.report.NoOpReporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  A complete game for each pairing of bundled players. Reporting is switched off, so only the players
+ *  and the engine are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    @Param
+    private BundledPlayer playerX;
+
+    @Param
+    private BundledPlayer playerO;
+
+    private Player x;
+    private Player o;
+
+    @Setup
+    public void setup() {
+        x = playerX.create();
+        o = playerO.create();
+        x.beforeMatch();
+        o.beforeMatch();
+    }
+
+    @Benchmark
+    public int game() {
+        return new Game(x, o, BoardGeometry.STANDARD, NoOpReporter.INSTANCE).run();
+    }
+}
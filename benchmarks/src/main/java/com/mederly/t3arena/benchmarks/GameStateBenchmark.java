@@ -0,0 +1,46 @@
+package com.mederly.t3arena.benchmarks;
+
+import com.mederly.t3arena.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Deriving game states from each other, as done e.g. when building game trees, vs. making and taking back
+ *  moves in place, as done by searching algorithms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameStateBenchmark {
+
+    private GameState gameState;
+
+    @Setup
+    public void setup() {
+        gameState = new GameState();
+        gameState.registerMove(5);
+        gameState.registerMove(1);
+    }
+
+    @Benchmark
+    public GameState copyWithMove() {
+        return new GameState(gameState, 9);
+    }
+
+    @Benchmark
+    public Integer copyWithMoveAndDetermineWinner() {
+        return new GameState(gameState, 9).determineWinner();
+    }
+
+    @Benchmark
+    public Integer makeAndUnmakeMove() {
+        gameState.makeMove(9);
+        Integer winner = gameState.getWinner();
+        gameState.unmakeMove();
+        return winner;
+    }
+}
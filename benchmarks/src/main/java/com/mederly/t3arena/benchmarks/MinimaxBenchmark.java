@@ -0,0 +1,45 @@
+package com.mederly.t3arena.benchmarks;
+
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.GameState;
+import com.mederly.t3arena.players.minimax.AlphaBetaSearcher;
+import com.mederly.t3arena.players.minimax.MinimaxEvaluator;
+import com.mederly.t3arena.players.minimax.StateNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Computing minimax values: the full StateNode tree vs. the transposition table evaluator vs. alpha-beta search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+@State(Scope.Thread)
+public class MinimaxBenchmark {
+
+    @Benchmark
+    public StateNode stateNodeConstruction() {
+        return new StateNode(new GameState());
+    }
+
+    @Benchmark
+    public StateNode stateNodeConstructionAndEvaluation() {
+        StateNode root = new StateNode(new GameState());
+        root.evaluate();
+        return root;
+    }
+
+    @Benchmark
+    public int transpositionTableEvaluation() {
+        return new MinimaxEvaluator().evaluate(new Board());
+    }
+
+    @Benchmark
+    public List<Integer> alphaBetaSearchFromEmptyBoard() {
+        return new AlphaBetaSearcher().findBestMoves(new Board());
+    }
+}
@@ -0,0 +1,23 @@
+package com.mederly.t3arena.benchmarks;
+
+import com.mederly.t3arena.players.stat.CompleteStatisticsDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Generation of complete statistics (i.e. playing all possible games).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsBenchmark {
+
+    @Benchmark
+    public CompleteStatisticsDataSource completeStatisticsGeneration() {
+        return new CompleteStatisticsDataSource();
+    }
+}
@@ -1,17 +1,20 @@
 package com.mederly.t3arena;
 
-import com.mederly.t3arena.players.RandomPlayer;
-import com.mederly.t3arena.players.SequentialPlayer;
-import com.mederly.t3arena.players.FirstMoveSelector;
-import com.mederly.t3arena.players.minimax.MinimaxPlayer;
-import com.mederly.t3arena.players.RandomMoveSelector;
-import com.mederly.t3arena.players.stat.CompleteStatisticsDataSource;
-import com.mederly.t3arena.players.stat.NotLoseRatioSelector;
-import com.mederly.t3arena.players.stat.StatisticalPlayer;
-import com.mederly.t3arena.players.stat.WinRatioSelector;
+import com.mederly.t3arena.distributed.Coordinator;
+import com.mederly.t3arena.distributed.PlayerRegistry;
+import com.mederly.t3arena.report.AsyncTextReporter;
+import com.mederly.t3arena.report.ConsoleReporter;
+import com.mederly.t3arena.report.GameReporter;
+import com.mederly.t3arena.report.NoOpReporter;
+import com.mederly.t3arena.report.SampledReporter;
+import com.mederly.t3arena.tournament.Pairing;
+import com.mederly.t3arena.tournament.Tournament;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *  A class that provides a place where a couple of playing algorithms (i.e. players) meet to match.
@@ -22,22 +25,77 @@ public class Arena {
 
     private static final int ROUNDS_IN_MATCH = 1000;
 
+    /**
+     * How many rounds are played by a worker process at once (when running distributed).
+     */
+    private static final int ROUNDS_PER_SHARD = 250;
+
+    /**
+     * How long a worker process may play a shard before it is considered hung and killed.
+     */
+    private static final long SHARD_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Pool used to run the matches (and their rounds) in parallel. If null, everything runs sequentially.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Where to report the progress of the matches.
+     */
+    private final GameReporter reporter;
+
+    /**
+     * If not null, the players meet in a tournament with this pairing instead of the fixed list of matches.
+     */
+    private final Pairing pairing;
+
+    /**
+     * If not null, the matches are played by worker processes instead of this JVM.
+     */
+    private final Coordinator coordinator;
+
+    /**
+     * Matches started but possibly not finished yet.
+     */
+    private final List<CompletableFuture<?>> runningMatches = new ArrayList<>();
+
+    public Arena(ForkJoinPool pool, GameReporter reporter) {
+        this(pool, reporter, null);
+    }
+
+    public Arena(ForkJoinPool pool, GameReporter reporter, Pairing pairing) {
+        this(pool, reporter, pairing, null);
+    }
+
+    public Arena(ForkJoinPool pool, GameReporter reporter, Pairing pairing, Coordinator coordinator) {
+        this.pool = pool;
+        this.reporter = reporter;
+        this.pairing = pairing;
+        this.coordinator = coordinator;
+    }
+
     private void play() {
 
-        // Players initialization
-        Player sequential1 = new SequentialPlayer("Sequential1");
-        Player sequential2 = new SequentialPlayer("Sequential2");
-        Player random1 = new RandomPlayer("Random1");
-        Player random2 = new RandomPlayer("Random2");
-        Player minimaxFirst1 = new MinimaxPlayer("MinimaxFirst1", new FirstMoveSelector());
-        Player minimaxFirst2 = new MinimaxPlayer("MinimaxFirst2", new FirstMoveSelector());
-        Player minimaxRandom1 = new MinimaxPlayer("MinimaxRandom1", new RandomMoveSelector());
-
-        CompleteStatisticsDataSource completeStatisticsDataSource = new CompleteStatisticsDataSource();
-        Player completeStatisticsWithWinRatio = new StatisticalPlayer("CompleteStatistics-Win",
-                completeStatisticsDataSource, new WinRatioSelector(), new RandomMoveSelector());
-        Player completeStatisticsWithNotLoseRatio = new StatisticalPlayer("CompleteStatistics-NotLose",
-                completeStatisticsDataSource, new NotLoseRatioSelector(), new RandomMoveSelector());
+        // Players initialization (players are created by factories, as parallel execution needs an instance per thread).
+        // They are registered by names in the registry, so that worker processes can create them as well.
+        PlayerRegistry registry = PlayerRegistry.createStandard(pool);
+        PlayerFactory sequential1 = registry.getFactory("Sequential1");
+        PlayerFactory sequential2 = registry.getFactory("Sequential2");
+        PlayerFactory random1 = registry.getFactory("Random1");
+        PlayerFactory random2 = registry.getFactory("Random2");
+        PlayerFactory minimaxFirst1 = registry.getFactory("MinimaxFirst1");
+        PlayerFactory minimaxFirst2 = registry.getFactory("MinimaxFirst2");
+        PlayerFactory minimaxRandom1 = registry.getFactory("MinimaxRandom1");
+        PlayerFactory mcts1 = registry.getFactory("Mcts1");
+        PlayerFactory completeStatisticsWithWinRatio = registry.getFactory("CompleteStatistics-Win");
+        PlayerFactory completeStatisticsWithNotLoseRatio = registry.getFactory("CompleteStatistics-NotLose");
+
+        if (pairing != null) {
+            playTournament(mcts1, sequential1, random1, minimaxFirst1, minimaxRandom1, completeStatisticsWithWinRatio,
+                    completeStatisticsWithNotLoseRatio);
+            return;
+        }
 
         // Matches
         matches = new ArrayList<>();
@@ -57,23 +115,116 @@ public class Arena {
         runMatch(completeStatisticsWithNotLoseRatio, minimaxFirst1);
         runMatch(completeStatisticsWithNotLoseRatio, minimaxRandom1);
         runMatch(completeStatisticsWithWinRatio, completeStatisticsWithNotLoseRatio);
+        runMatch(mcts1, random1);
+        runMatch(mcts1, minimaxRandom1);
+        waitForMatches();
+        closeReporter();
 
         // Final results
         System.out.println("----------------------------------------------------------------------");
         System.out.println("Results of the matches:\n");
         for (Match match : matches) {
             System.out.println(match.getResultAsString());
+            System.out.println(match.getMetricsAsString());
+        }
+    }
+
+    private void playTournament(PlayerFactory... players) {
+        Tournament tournament = new Tournament(pairing, ROUNDS_IN_MATCH);
+        for (PlayerFactory player : players) {
+            tournament.addPlayer(player);
+        }
+        tournament.setPool(pool);
+        tournament.setCoordinator(coordinator);
+        tournament.setReporter(reporter);
+        tournament.run();
+        closeReporter();
+
+        System.out.println("----------------------------------------------------------------------");
+        System.out.println("Results of the " + pairing + " tournament:\n");
+        for (Match match : tournament.getMatches()) {
+            System.out.println(match.getResultAsString());
         }
+        System.out.println();
+        System.out.print(tournament.getCrossTable().getAsString());
     }
 
-    private void runMatch(Player player1, Player player2) {
+    private void closeReporter() {
+        if (reporter instanceof AsyncTextReporter) {
+            try {
+                ((AsyncTextReporter) reporter).close();       // so that the results are printed after all the details
+            } catch (IOException e) {
+                throw new IllegalStateException("Couldn't write the report: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void runMatch(PlayerFactory player1, PlayerFactory player2) {
         Match match = new Match(player1, player2, ROUNDS_IN_MATCH);
-        match.run();
+        match.setReporter(reporter);
+        if (coordinator != null) {
+            runningMatches.add(coordinator.submit(match));
+        } else if (pool != null) {
+            runningMatches.add(CompletableFuture.runAsync(() -> match.run(pool), pool));
+        } else {
+            match.run();
+        }
         matches.add(match);
     }
 
+    private void waitForMatches() {
+        for (CompletableFuture<?> runningMatch : runningMatches) {
+            runningMatch.join();
+        }
+        runningMatches.clear();
+    }
+
+    /**
+     * Runs the arena. Arguments (both optional):
+     *
+     * 1. The number of threads to be used: 0 means all available processors. Without this argument, everything
+     *    runs sequentially in the main thread.
+     * 2. How to report the progress: "console" (default - everything is printed), "none" (only the final results
+     *    are printed), "sampled" (only every 1000th game is printed), "async" (everything is printed in background).
+     * 3. Instead of the fixed list of matches ("matches", the default), play a tournament with the given pairing:
+     *    "round-robin", "swiss", or "gauntlet" (the MCTS player being the challenger).
+     * 4. The number of worker processes to play the matches in. Without this argument, the matches are played
+     *    in this JVM. Each worker uses the number of threads given by the first argument.
+     */
     public static void main(String[] args) {
-        Arena arena = new Arena();
+        ForkJoinPool pool;
+        if (args.length > 0) {
+            int threads = Integer.parseInt(args[0]);
+            pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        } else {
+            pool = null;
+        }
+        String reporting = args.length > 1 ? args[1] : "console";
+        GameReporter reporter;
+        switch (reporting) {
+            case "console": reporter = new ConsoleReporter(); break;
+            case "none": reporter = NoOpReporter.INSTANCE; break;
+            case "sampled": reporter = new SampledReporter(new ConsoleReporter(), 1000); break;
+            case "async": reporter = new AsyncTextReporter(); break;
+            default: throw new IllegalArgumentException("Unknown reporting mode: " + reporting);
+        }
+        Pairing pairing = args.length > 2 && !args[2].equals("matches") ?
+                Pairing.valueOf(args[2].toUpperCase().replace('-', '_')) : null;
+        Coordinator coordinator;
+        if (args.length > 3) {
+            coordinator = new Coordinator(Integer.parseInt(args[3]), ROUNDS_PER_SHARD);
+            coordinator.setWorkerThreads(pool != null ? pool.getParallelism() : 1);
+            coordinator.setShardTimeoutMillis(SHARD_TIMEOUT_MILLIS);
+        } else {
+            coordinator = null;
+        }
+        Arena arena = new Arena(pool, reporter, pairing, coordinator);
         arena.play();
+        if (coordinator != null) {
+            coordinator.close();
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
     }
 }
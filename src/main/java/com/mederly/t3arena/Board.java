@@ -1,81 +1,285 @@
 package com.mederly.t3arena;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
- * A Tic-Tac-Toe board.
+ * A Tic-Tac-Toe board. By default it is the standard 3x3 one, but other geometries (m,n,k-games) are supported
+ * as well - see BoardGeometry. Position codes, canonical keys and symmetry transforms are available only
+ * for the standard board.
  */
 public class Board implements Comparable<Board> {
 
     public static final byte PLAYER_X = 1;
     public static final byte PLAYER_O = 2;
 
+    /**
+     * Mask having all nine fields of the standard board set.
+     */
+    private static final int FULL_MASK = 0x1FF;
+
+    /**
+     * Number of distinct position codes, i.e. 3^9. See getPositionCode().
+     */
+    public static final int POSITION_CODES = 19683;
+
+    /**
+     * Number of board symmetries (4 rotations, each optionally preceded by a horizontal mirroring).
+     */
+    public static final int TRANSFORMS = 8;
+
+    /**
+     * TERNARY[mask] is the position code of a board having 1s exactly at fields present in the mask.
+     */
+    private static final int[] TERNARY = new int[FULL_MASK + 1];
+
+    /**
+     * FIELD_TRANSFORMS[t][n-1] is the field number to which field #n is moved by transform t.
+     * INVERSE_FIELD_TRANSFORMS[t] does the opposite.
+     */
+    private static final int[][] FIELD_TRANSFORMS = new int[TRANSFORMS][9];
+    private static final int[][] INVERSE_FIELD_TRANSFORMS = new int[TRANSFORMS][9];
+
+    /**
+     * MASK_TRANSFORMS[t][mask] is the mask of fields obtained by applying transform t to fields present in the mask.
+     */
+    private static final int[][] MASK_TRANSFORMS = new int[TRANSFORMS][FULL_MASK + 1];
+
+    static {
+        for (int mask = 0; mask <= FULL_MASK; mask++) {
+            int code = 0;
+            for (int bit = 1; bit <= FULL_MASK; bit <<= 1) {
+                code = code*3 + ((mask & bit) != 0 ? 1 : 0);
+            }
+            TERNARY[mask] = code;
+        }
+        for (int t = 0; t < TRANSFORMS; t++) {
+            for (int i = 0; i < 9; i++) {
+                int row = i / 3;
+                int column = t >= 4 ? 2 - i % 3 : i % 3;       // mirroring first (if requested)
+                for (int r = 0; r < t % 4; r++) {               // then rotating clockwise by 90 degrees
+                    int newRow = column;
+                    column = 2 - row;
+                    row = newRow;
+                }
+                FIELD_TRANSFORMS[t][i] = row*3 + column + 1;
+                INVERSE_FIELD_TRANSFORMS[t][row*3 + column] = i + 1;
+            }
+            for (int mask = 0; mask <= FULL_MASK; mask++) {
+                int transformed = 0;
+                for (int i = 0; i < 9; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        transformed |= 1 << (FIELD_TRANSFORMS[t][i] - 1);
+                    }
+                }
+                MASK_TRANSFORMS[t][mask] = transformed;
+            }
+        }
+    }
+
     /**
      * Board: [0][0] (#1)    [0][1] (#2)     [0][2] (#3)
      *        [1][0] (#4)    [1][1] (#5)     [1][2] (#6)
      *        [2][0] (#7)    [2][1] (#8)     [2][2] (#9)
      *
-     * Each field has a value of either 0 (empty), 1 (X), or 2 (O).
+     * (Boards with other geometries are numbered in the same way, i.e. row by row.)
+     *
+     * Each field is represented by one bit in each of the following masks: field #n corresponds to bit (n-1).
+     * A field is empty if its bit is set in neither of the masks.
      */
-    private final byte[][] board;
+    private int xMask;
+    private int oMask;
 
     /**
-     * Default constructor: creates a new board.
+     * Size of the board and the winning rule.
+     */
+    private final BoardGeometry geometry;
+
+    /**
+     * The winner (PLAYER_X or PLAYER_O), or 0 if nobody has won yet. Maintained incrementally by registerMove.
+     */
+    private byte winner;
+
+    /**
+     * Zobrist hash of the position (see BoardGeometry), maintained incrementally by registerMove and unregisterMove.
+     */
+    private long hash;
+
+    /**
+     * Default constructor: creates a new standard (3x3) board.
      */
     public Board() {
-        this.board = new byte[][] { new byte[3], new byte[3], new byte[3] };
+        this(BoardGeometry.STANDARD);
+    }
+
+    /**
+     * Creates a new board with given geometry.
+     */
+    public Board(BoardGeometry geometry) {
+        this.geometry = geometry;
     }
 
     /**
      * Creates a new board by copying existing one.
      */
     public Board(Board original) {
-        this();
-        for (int i = 0; i <= 2; i++) {
-            for (int j = 0; j <= 2; j++) {
-                board[i][j] = original.board[i][j];
-            }
+        this.geometry = original.geometry;
+        this.xMask = original.xMask;
+        this.oMask = original.oMask;
+        this.winner = original.winner;
+        this.hash = original.hash;
+    }
+
+    /**
+     * Makes this board a copy of another one (of the same geometry), without allocating a new board.
+     */
+    public void copyFrom(Board original) {
+        if (original.geometry != geometry && !original.geometry.equals(geometry)) {
+            throw new IllegalArgumentException("Cannot copy " + original.geometry + " board to " + geometry + " one");
         }
+        this.xMask = original.xMask;
+        this.oMask = original.oMask;
+        this.winner = original.winner;
+        this.hash = original.hash;
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
     }
 
     /**
      * Registers a move done at this board by the specific player.
      */
     public void registerMove(byte player, int field) {
-        Coordinates coords = new Coordinates(field);
-        int row = coords.getRow();
-        int column = coords.getColumn();
+        int bit = geometry.getFieldBit(field);
+        if (((xMask | oMask) & bit) != 0) {
+            throw new IllegalStateException("Board at field " + field + " ([" + geometry.getRow(field) + "][" + geometry.getColumn(field) + "]) has already a value of " + getAt(field));
+        } else if (player == PLAYER_X) {
+            xMask |= bit;
+            hash ^= geometry.getZobristKey(field - 1);
+            if (winner == 0 && geometry.isWinningMove(xMask, field)) {
+                winner = PLAYER_X;
+            }
+        } else if (player == PLAYER_O) {
+            oMask |= bit;
+            hash ^= geometry.getZobristKey(geometry.getFieldCount() + field - 1);
+            if (winner == 0 && geometry.isWinningMove(oMask, field)) {
+                winner = PLAYER_O;
+            }
+        } else {
+            throw new IllegalArgumentException("Invalid player specification: " + player);
+        }
+    }
 
-        if (board[row][column] != 0) {
-            throw new IllegalStateException("Board at field " + field + " ([" + row + "][" + column + "]) has already a value of " + board[row][column]);
+    /**
+     * Takes back a move previously registered at the given field, restoring the board to the state before that move.
+     * Intended for make/unmake style search and enumeration, where moves are taken back in reverse order.
+     */
+    public void unregisterMove(int field) {
+        int bit = geometry.getFieldBit(field);
+        byte player;
+        if ((xMask & bit) != 0) {
+            xMask &= ~bit;
+            hash ^= geometry.getZobristKey(field - 1);
+            player = PLAYER_X;
+        } else if ((oMask & bit) != 0) {
+            oMask &= ~bit;
+            hash ^= geometry.getZobristKey(geometry.getFieldCount() + field - 1);
+            player = PLAYER_O;
         } else {
-            board[row][column] = player;
+            throw new IllegalStateException("Board at field " + field + " ([" + geometry.getRow(field) + "][" + geometry.getColumn(field) + "]) is empty");
+        }
+        if (winner == player) {
+            recomputeWinner();          // usually the winning move is the one taken back
         }
     }
 
     /**
      * Returns a value of the given field.
-     * @param fieldNumber Numeric value from 1 to 9.
+     * @param fieldNumber Numeric value from 1 to 9 (or to the number of fields for non-standard boards).
      * @return 0 (empty), 1 (X) or 2 (O)
      */
     public byte getAt(int fieldNumber) {
-        Coordinates c = new Coordinates(fieldNumber);
-        return board[c.getRow()][c.getColumn()];
+        int bit = geometry.getFieldBit(fieldNumber);
+        if ((xMask & bit) != 0) {
+            return PLAYER_X;
+        } else if ((oMask & bit) != 0) {
+            return PLAYER_O;
+        } else {
+            return 0;
+        }
     }
 
     /**
      * List of free fields e.g. to choose from when doing our move.
      */
     public List<Integer> getFreeFields() {
-        List<Integer> freeFields = new ArrayList<>();
-        for (int i = 1; i <= 9; i++) {
-            if (getAt(i) == 0) {
-                freeFields.add(i);
-            }
+        return toFieldList(getFreeFieldsMask());
+    }
+
+    /**
+     * Free fields as a bit mask: field #n is free if bit (n-1) is set. An allocation-free alternative to getFreeFields().
+     *
+     * The fields can be iterated e.g. like this:
+     *
+     *     for (int fields = board.getFreeFieldsMask(); fields != 0; fields &= fields - 1) {
+     *         int field = Board.getFirstField(fields);
+     *         ...
+     *     }
+     */
+    public int getFreeFieldsMask() {
+        return ~(xMask | oMask) & geometry.getFullMask();
+    }
+
+    /**
+     * @return Fields taken by the given player as a bit mask (field #n is bit n-1).
+     */
+    public int getMask(byte player) {
+        if (player == PLAYER_X) {
+            return xMask;
+        } else if (player == PLAYER_O) {
+            return oMask;
+        } else {
+            throw new IllegalArgumentException("Invalid player specification: " + player);
         }
-        return freeFields;
+    }
+
+    /**
+     * @return The lowest field number present in the (non-empty) field mask.
+     */
+    public static int getFirstField(int fields) {
+        if (fields == 0) {
+            throw new IllegalArgumentException("No fields in the mask");
+        }
+        return Integer.numberOfTrailingZeros(fields) + 1;
+    }
+
+    /**
+     * @return Number of fields present in the field mask.
+     */
+    public static int getFieldCount(int fields) {
+        return Integer.bitCount(fields);
+    }
+
+    /**
+     * @return The n-th (counting from 0) lowest field number present in the field mask.
+     */
+    public static int getNthField(int fields, int n) {
+        for (int i = 0; i < n; i++) {
+            fields &= fields - 1;
+        }
+        return getFirstField(fields);
+    }
+
+    /**
+     * Converts field mask into a list of field numbers (in ascending order).
+     */
+    public static List<Integer> toFieldList(int fields) {
+        List<Integer> list = new ArrayList<>(Integer.bitCount(fields));
+        for (; fields != 0; fields &= fields - 1) {
+            list.add(getFirstField(fields));
+        }
+        return list;
     }
 
     /**
@@ -84,11 +288,9 @@ public class Board implements Comparable<Board> {
      * @return 1 (PLAYER_X), 2 (PLAYER_O), 0 (tie) or null (game is still in progress)
      */
     public Integer getWinner() {
-        if (isWinner(PLAYER_X)) {
-            return (int) PLAYER_X;
-        } else if (isWinner(PLAYER_O)) {
-            return (int) PLAYER_O;
-        } else if (getFreeFields().isEmpty()) {
+        if (winner != 0) {
+            return (int) winner;
+        } else if ((xMask | oMask) == geometry.getFullMask()) {
             return 0;
         } else {
             return null;
@@ -96,34 +298,54 @@ public class Board implements Comparable<Board> {
     }
 
     /**
-     * Checks if "player" is the winner by looking at his signs in rows, columns and diagonals.
+     * Determines the winner by looking at all winning lines. Needed when the board is not built move by move.
      */
-    private boolean isWinner(byte player) {
-        for (int row = 0; row <= 2; row++) {
-            if (board[row][0] == player && board[row][1] == player && board[row][2] == player) {
-                return true;
-            }
+    private void recomputeWinner() {
+        if (geometry.isWinner(xMask)) {
+            winner = PLAYER_X;
+        } else if (geometry.isWinner(oMask)) {
+            winner = PLAYER_O;
+        } else {
+            winner = 0;
         }
-        for (int column = 0; column <= 2; column++) {
-            if (board[0][column] == player && board[1][column] == player && board[2][column] == player) {
-                return true;
-            }
+    }
+
+    /**
+     * Computes the Zobrist hash from scratch. Needed when the board is not built move by move.
+     */
+    private void recomputeHash() {
+        hash = 0;
+        for (int fields = xMask; fields != 0; fields &= fields - 1) {
+            hash ^= geometry.getZobristKey(Integer.numberOfTrailingZeros(fields));
         }
-        if (board[0][0] == player && board[1][1] == player && board[2][2] == player) {
-            return true;
-        } else if (board[0][2] == player && board[1][1] == player && board[2][0] == player) {
-            return true;
-        } else {
-            return false;
+        for (int fields = oMask; fields != 0; fields &= fields - 1) {
+            hash ^= geometry.getZobristKey(geometry.getFieldCount() + Integer.numberOfTrailingZeros(fields));
+        }
+    }
+
+    /**
+     * @return Whose turn it is on this board, assuming X starts: 1 (PLAYER_X) or 2 (PLAYER_O).
+     */
+    public byte getPlayerOnTurn() {
+        return Integer.bitCount(xMask) > Integer.bitCount(oMask) ? PLAYER_O : PLAYER_X;
+    }
+
+    /**
+     * @return Index (0..8) of the given field number (1..9) of the standard board.
+     */
+    private static int getFieldIndex(int fieldNumber) {
+        if (fieldNumber < 1 || fieldNumber > 9) {
+            throw new IllegalArgumentException("Illegal field number: " + fieldNumber);
         }
+        return fieldNumber-1;
     }
 
     /**
-     * @return String representation of the board, e.g. XO-XXO-OOX
+     * @return String representation of the board, e.g. XO-XXO-OOX (fields are listed row by row)
      */
     public String getStringRepresentation() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 1; i <= 9; i++) {
+        for (int i = 1; i <= geometry.getFieldCount(); i++) {
             byte value = getAt(i);
             switch (value) {
                 case PLAYER_X: sb.append("X"); break;
@@ -138,18 +360,112 @@ public class Board implements Comparable<Board> {
      * @return Numeric representation of the board, giving 0 at empty fields, 1 on Xs and 2 on Os.
      */
     public int getNumericRepresentation() {
+        checkStandardGeometry();
         int returnValue = 0;
-        for (int i = 1; i <= 9; i++) {
+        for (int bit = 1; bit <= FULL_MASK; bit <<= 1) {
             returnValue = returnValue*10;
-            byte value = getAt(i);
-            switch (value) {
-                case PLAYER_X: returnValue += 1; break;
-                case PLAYER_O: returnValue += 2; break;
+            if ((xMask & bit) != 0) {
+                returnValue += 1;
+            } else if ((oMask & bit) != 0) {
+                returnValue += 2;
             }
         }
         return returnValue;
     }
 
+    /**
+     * @return Position code of the board, i.e. its numeric representation (see getNumericRepresentation) interpreted
+     * in base 3. It is in the range of 0..POSITION_CODES-1, so it can be used to index arrays. Position codes
+     * are ordered in the same way as the numeric representations.
+     */
+    public int getPositionCode() {
+        checkStandardGeometry();
+        return TERNARY[xMask] + 2*TERNARY[oMask];
+    }
+
+    /**
+     * Creates a board from its position code (see getPositionCode).
+     */
+    public static Board fromPositionCode(int code) {
+        if (code < 0 || code >= POSITION_CODES) {
+            throw new IllegalArgumentException("Illegal position code: " + code);
+        }
+        Board board = new Board();
+        for (int bit = 1 << 8; bit != 0; bit >>>= 1) {
+            switch (code % 3) {
+                case PLAYER_X: board.xMask |= bit; break;
+                case PLAYER_O: board.oMask |= bit; break;
+            }
+            code /= 3;
+        }
+        board.recomputeWinner();
+        board.recomputeHash();
+        return board;
+    }
+
+    /**
+     * @return Canonical key of the board: the lowest position code among all 8 symmetric variants of the board.
+     * Boards that differ only by rotation and/or mirroring share the same canonical key.
+     */
+    public int getCanonicalKey() {
+        checkStandardGeometry();
+        int key = Integer.MAX_VALUE;
+        for (int t = 0; t < TRANSFORMS; t++) {
+            key = Math.min(key, getTransformedCode(t));
+        }
+        return key;
+    }
+
+    /**
+     * @return Transform (0..TRANSFORMS-1) that maps this board into its canonical variant, i.e. the one whose
+     * position code is the canonical key. Use transformField and inverseTransformField to map moves between
+     * this board and the canonical one.
+     */
+    public int getCanonicalTransform() {
+        checkStandardGeometry();
+        int key = Integer.MAX_VALUE;
+        int transform = 0;
+        for (int t = 0; t < TRANSFORMS; t++) {
+            int code = getTransformedCode(t);
+            if (code < key) {
+                key = code;
+                transform = t;
+            }
+        }
+        return transform;
+    }
+
+    /**
+     * @return true if this board is the canonical variant among its symmetric variants
+     */
+    public boolean isCanonical() {
+        return getPositionCode() == getCanonicalKey();
+    }
+
+    private int getTransformedCode(int transform) {
+        return TERNARY[MASK_TRANSFORMS[transform][xMask]] + 2*TERNARY[MASK_TRANSFORMS[transform][oMask]];
+    }
+
+    /**
+     * Maps a field of a board into the corresponding field of the board transformed by the given transform.
+     */
+    public static int transformField(int transform, int field) {
+        return FIELD_TRANSFORMS[transform][getFieldIndex(field)];
+    }
+
+    /**
+     * Maps a field of a transformed board back into the corresponding field of the original board.
+     */
+    public static int inverseTransformField(int transform, int field) {
+        return INVERSE_FIELD_TRANSFORMS[transform][getFieldIndex(field)];
+    }
+
+    private void checkStandardGeometry() {
+        if (!geometry.isStandard()) {
+            throw new UnsupportedOperationException("Supported only for the standard 3x3 board, not for " + geometry);
+        }
+    }
+
     @Override
     public String toString() {
         return getStringRepresentation();
@@ -162,23 +478,32 @@ public class Board implements Comparable<Board> {
         } else if (!(o instanceof Board)) {
             return false;
         } else {
-            return Arrays.equals(board[0], ((Board) o).board[0])
-                    && Arrays.equals(board[1], ((Board) o).board[1])
-                    && Arrays.equals(board[1], ((Board) o).board[1]);
+            Board other = (Board) o;
+            return xMask == other.xMask && oMask == other.oMask && geometry.equals(other.geometry);
         }
     }
 
     @Override
     public int hashCode() {
-        int hash = 1;
-        hash = hash*31 + Arrays.hashCode(board[0]);
-        hash = hash*31 + Arrays.hashCode(board[1]);
-        hash = hash*31 + Arrays.hashCode(board[2]);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * @return 64-bit Zobrist hash of the position: XOR of keys of all signs on the board (see BoardGeometry).
+     * Updated in O(1) by each move. Positions on boards of the same geometry have the same hash in every run.
+     */
+    public long getZobristHash() {
         return hash;
     }
 
     @Override
     public int compareTo(Board o) {
-        return getNumericRepresentation() - o.getNumericRepresentation();
+        if (geometry.isStandard() && o.geometry.isStandard()) {
+            return getPositionCode() - o.getPositionCode();
+        } else if (xMask != o.xMask) {
+            return Integer.compareUnsigned(xMask, o.xMask);
+        } else {
+            return Integer.compareUnsigned(oMask, o.oMask);
+        }
     }
 }
@@ -0,0 +1,270 @@
+package com.mederly.t3arena;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *  Geometry of a board: its width, height and number of signs in a row needed to win (an m,n,k-game).
+ *  The standard Tic-Tac-Toe is 3x3 with 3 in a row.
+ *
+ *  Fields are numbered row by row, starting from 1 in the upper left corner. E.g. on 4x4 board fields
+ *  in the first row are 1..4, in the second row 5..8, and so on. Boards are stored as bit masks, so
+ *  a board can have at most 32 fields.
+ */
+public class BoardGeometry {
+
+    public static final int MAX_FIELDS = 32;
+
+    public static final BoardGeometry STANDARD = new BoardGeometry(3, 3, 3);
+
+    /**
+     * Number of columns.
+     */
+    private final int width;
+
+    /**
+     * Number of rows.
+     */
+    private final int height;
+
+    /**
+     * How many signs in a row (horizontally, vertically or diagonally) are needed to win.
+     */
+    private final int winLength;
+
+    /**
+     * Mask having all fields set.
+     */
+    private final int fullMask;
+
+    /**
+     * Masks of all winning lines.
+     */
+    private final int[] winLines;
+
+    /**
+     * Masks of winning lines going through individual fields: linesThroughField[n-1] are lines containing field #n.
+     * Used to check for a winner only around the last move.
+     */
+    private final int[][] linesThroughField;
+
+    /**
+     * Fields ordered by their (estimated) strength: fields lying on more winning lines first.
+     */
+    private final int[] moveOrder;
+
+    /**
+     * Random keys for Zobrist hashing: zobristKeys[n-1] for X at field #n, zobristKeys[fieldCount+n-1] for O.
+     * They are derived from the dimensions only, so hashes are the same in every run (and can be stored in files).
+     */
+    private final long[] zobristKeys;
+
+    public BoardGeometry(int width, int height, int winLength) {
+        if (width < 1 || height < 1 || width * height > MAX_FIELDS) {
+            throw new IllegalArgumentException("Unsupported board size: " + width + "x" + height + " (at most " + MAX_FIELDS + " fields are supported)");
+        }
+        if (winLength < 1 || winLength > Math.max(width, height)) {
+            throw new IllegalArgumentException("Illegal number of signs in a row: " + winLength + " for board " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        int fieldCount = width * height;
+        this.fullMask = fieldCount == 32 ? -1 : (1 << fieldCount) - 1;
+        this.winLines = computeWinLines();
+        this.linesThroughField = new int[fieldCount][];
+        for (int i = 0; i < fieldCount; i++) {
+            List<Integer> lines = new ArrayList<>();
+            for (int line : winLines) {
+                if ((line & (1 << i)) != 0) {
+                    lines.add(line);
+                }
+            }
+            linesThroughField[i] = lines.stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.moveOrder = computeMoveOrder();
+        this.zobristKeys = computeZobristKeys();
+    }
+
+    private int[] computeWinLines() {
+        int[][] directions = { {0, 1}, {1, 0}, {1, 1}, {1, -1} };      // row, column deltas
+        List<Integer> lines = new ArrayList<>();
+        for (int[] direction : directions) {
+            for (int row = 0; row < height; row++) {
+                for (int column = 0; column < width; column++) {
+                    int endRow = row + direction[0] * (winLength - 1);
+                    int endColumn = column + direction[1] * (winLength - 1);
+                    if (endRow < height && endColumn >= 0 && endColumn < width) {
+                        int line = 0;
+                        for (int i = 0; i < winLength; i++) {
+                            line |= getFieldBit(getFieldNumber(row + direction[0] * i, column + direction[1] * i));
+                        }
+                        if (!lines.contains(line)) {        // for winLength of 1 all directions give the same lines
+                            lines.add(line);
+                        }
+                    }
+                }
+            }
+        }
+        return lines.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Keys are generated by SplitMix64, seeded by the dimensions of the board.
+     */
+    private long[] computeZobristKeys() {
+        long[] keys = new long[2 * getFieldCount()];
+        long state = 0x5DEECE66DL * 31 * 31 + width * 31 * 31 + height * 31 + winLength;
+        for (int i = 0; i < keys.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            keys[i] = z ^ (z >>> 31);
+        }
+        return keys;
+    }
+
+    private int[] computeMoveOrder() {
+        Integer[] fields = new Integer[getFieldCount()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = i + 1;
+        }
+        // stable sort, so fields with the same number of lines stay in the ascending order
+        Arrays.sort(fields, (f1, f2) -> linesThroughField[f2 - 1].length - linesThroughField[f1 - 1].length);
+        return Arrays.stream(fields).mapToInt(Integer::intValue).toArray();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getFieldCount() {
+        return width * height;
+    }
+
+    public int getFullMask() {
+        return fullMask;
+    }
+
+    /**
+     * @return true if this is the standard 3x3 Tic-Tac-Toe geometry
+     */
+    public boolean isStandard() {
+        return equals(STANDARD);
+    }
+
+    /**
+     * @return Bit corresponding to the given field number (1..fieldCount).
+     */
+    public int getFieldBit(int fieldNumber) {
+        if (fieldNumber < 1 || fieldNumber > getFieldCount()) {
+            throw new IllegalArgumentException("Illegal field number: " + fieldNumber);
+        }
+        return 1 << (fieldNumber - 1);
+    }
+
+    /**
+     * @return Field number for given row and column (both starting at 0).
+     */
+    public int getFieldNumber(int row, int column) {
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            throw new IllegalArgumentException("Illegal coordinates: [" + row + "][" + column + "]");
+        }
+        return row * width + column + 1;
+    }
+
+    public int getRow(int fieldNumber) {
+        return (fieldNumber - 1) / width;
+    }
+
+    public int getColumn(int fieldNumber) {
+        return (fieldNumber - 1) % width;
+    }
+
+    /**
+     * Checks whether a player having given fields (including the one just taken) has won by taking the field.
+     * Only lines going through the field are checked.
+     */
+    public boolean isWinningMove(int playerMask, int fieldNumber) {
+        for (int line : linesThroughField[fieldNumber - 1]) {
+            if ((playerMask & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a player having given fields has a complete winning line anywhere on the board.
+     */
+    public boolean isWinner(int playerMask) {
+        for (int line : winLines) {
+            if ((playerMask & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Fields (1..fieldCount) ordered by their estimated strength, the strongest first.
+     * Useful e.g. for move ordering in searches.
+     */
+    public int[] getMoveOrder() {
+        return moveOrder.clone();
+    }
+
+    /**
+     * @return Zobrist key of the given player's sign at the given field, see Board.getZobristHash().
+     */
+    public long getZobristKey(byte player, int fieldNumber) {
+        getFieldBit(fieldNumber);       // checks the field number
+        if (player == Board.PLAYER_X) {
+            return zobristKeys[fieldNumber - 1];
+        } else if (player == Board.PLAYER_O) {
+            return zobristKeys[getFieldCount() + fieldNumber - 1];
+        } else {
+            throw new IllegalArgumentException("Invalid player specification: " + player);
+        }
+    }
+
+    /**
+     * The same as getZobristKey but without checks; for use by Board.
+     * @param index field index (0-based) for X, field index + field count for O
+     */
+    long getZobristKey(int index) {
+        return zobristKeys[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof BoardGeometry)) {
+            return false;
+        } else {
+            BoardGeometry other = (BoardGeometry) o;
+            return width == other.width && height == other.height && winLength == other.winLength;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return (width * 31 + height) * 31 + winLength;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " (" + winLength + " in a row)";
+    }
+}
@@ -6,12 +6,12 @@ package com.mederly.t3arena;
 public class Coordinates {
 
     /**
-     * Row: 0..2, starting from the uppermost.
+     * Row: 0..2 (on the standard board), starting from the uppermost.
      */
     private int row;
 
     /**
-     * Column: 0..2, starting from the leftmost.
+     * Column: 0..2 (on the standard board), starting from the leftmost.
      */
     private int column;
 
@@ -31,6 +31,15 @@ public class Coordinates {
         column = (fieldNumber-1) % 3;
     }
 
+    /**
+     * Creates the coordinates based on absolute field number, for a board of given geometry.
+     */
+    public Coordinates(int fieldNumber, BoardGeometry geometry) {
+        geometry.getFieldBit(fieldNumber);      // checks the field number
+        row = geometry.getRow(fieldNumber);
+        column = geometry.getColumn(fieldNumber);
+    }
+
     public int getRow() {
         return row;
     }
@@ -50,4 +59,8 @@ public class Coordinates {
     public int getFieldNumber() {
         return row*3 + column + 1;
     }
+
+    public int getFieldNumber(BoardGeometry geometry) {
+        return geometry.getFieldNumber(row, column);
+    }
 }
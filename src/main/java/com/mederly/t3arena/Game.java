@@ -1,16 +1,42 @@
 package com.mederly.t3arena;
 
+import com.mederly.t3arena.metrics.MatchMetrics;
+import com.mederly.t3arena.metrics.PlayerMetrics;
+import com.mederly.t3arena.report.ConsoleReporter;
+import com.mederly.t3arena.report.GameReporter;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static com.mederly.t3arena.Board.PLAYER_O;
 import static com.mederly.t3arena.Board.PLAYER_X;
 
 /**
  *  A single game between two specific Tic Tac Toe algorithms (players).
+ *
+ *  Optionally, the game can be played under a time control. Then each move() is called in a separate thread and
+ *  abandoned (interrupted) if it does not return in time; the timeout policy decides what happens instead.
+ *  Until an abandoned call returns, the player is not called again (its moves, if any, are substituted as well).
+ *  After it returns, the player is informed about the actual state of the game by onMoveSubstituted().
+ *  Before the game ends, abandoned calls are waited for, so that the players can be safely used in next games;
+ *  a player that ignores interruption can thus delay the end of the game, but not the other player's moves.
  */
 public class Game {
 
+    /**
+     * Threads running the moves of players under time control. They are daemon threads, so a player that never
+     * returns does not prevent the JVM from exiting.
+     */
+    private static final ExecutorService MOVE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "t3arena-move");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * The first player - i.e. the one that puts X signs on the board.
      */
@@ -21,14 +47,86 @@ public class Game {
      */
     private final Player playerO;
 
+    /**
+     * Geometry of the board the game is played on.
+     */
+    private final BoardGeometry geometry;
+
+    /**
+     * Where to report the moves and the result.
+     */
+    private final GameReporter reporter;
+
+    /**
+     * Where to record the time spent by the players (null if not measured).
+     */
+    private final PlayerMetrics metricsX;
+    private final PlayerMetrics metricsO;
+
+    /**
+     * Time limits for the players (null if there are none).
+     */
+    private final TimeControl timeControl;
+
+    /**
+     * Where to add the memory allocated by moves executed in separate threads (null if not measured).
+     */
+    private final MatchMetrics matchMetrics;
+
+    /**
+     * Players with their clocks; created when the game starts.
+     */
+    private Contestant contestantX;
+    private Contestant contestantO;
+
     /**
      * The state of the game.
      */
     private GameState gameState;
 
     public Game(Player playerX, Player playerO) {
+        this(playerX, playerO, BoardGeometry.STANDARD);
+    }
+
+    public Game(Player playerX, Player playerO, BoardGeometry geometry) {
+        this(playerX, playerO, geometry, new ConsoleReporter());
+    }
+
+    public Game(Player playerX, Player playerO, BoardGeometry geometry, GameReporter reporter) {
+        this(playerX, playerO, geometry, reporter, null, null);
+    }
+
+    /**
+     * @param metricsX Where to record the time spent by player X in move() and afterGame(). Null if not needed.
+     * @param metricsO The same for player O.
+     */
+    public Game(Player playerX, Player playerO, BoardGeometry geometry, GameReporter reporter,
+                PlayerMetrics metricsX, PlayerMetrics metricsO) {
+        this(playerX, playerO, geometry, reporter, metricsX, metricsO, null);
+    }
+
+    /**
+     * @param timeControl Time limits for the players. Null if there should be none.
+     */
+    public Game(Player playerX, Player playerO, BoardGeometry geometry, GameReporter reporter,
+                PlayerMetrics metricsX, PlayerMetrics metricsO, TimeControl timeControl) {
+        this(playerX, playerO, geometry, reporter, metricsX, metricsO, timeControl, null);
+    }
+
+    /**
+     * @param matchMetrics Where to add the memory allocated by the players' moves executed in separate threads
+     *                     (under the time control). The game thread is measured by the caller. Null if not needed.
+     */
+    public Game(Player playerX, Player playerO, BoardGeometry geometry, GameReporter reporter,
+                PlayerMetrics metricsX, PlayerMetrics metricsO, TimeControl timeControl, MatchMetrics matchMetrics) {
         this.playerX = playerX;
         this.playerO = playerO;
+        this.geometry = geometry;
+        this.reporter = reporter;
+        this.metricsX = metricsX;
+        this.metricsO = metricsO;
+        this.timeControl = timeControl;
+        this.matchMetrics = matchMetrics;
     }
 
     /**
@@ -37,36 +135,340 @@ public class Game {
      * @return The winner. Or 0 if there's a tie.
      */
     public int run() {
-        playerX.beforeGame(PLAYER_X);
-        playerO.beforeGame(PLAYER_O);
+        contestantX = new Contestant(playerX, metricsX);
+        contestantO = new Contestant(playerO, metricsO);
+        playerX.setClock(timeControl != null ? contestantX : GameClock.UNLIMITED);
+        playerO.setClock(timeControl != null ? contestantO : GameClock.UNLIMITED);
+        playerX.beforeGame(PLAYER_X, geometry);
+        playerO.beforeGame(PLAYER_O, geometry);
         List<Integer> moves = new ArrayList<>();
 
-        gameState = new GameState();
+        gameState = new GameState(geometry);
         for (;;) {
             Integer winner = gameState.determineWinner();
             if (winner != null) {
-                System.out.println("Winner: " + winner);
-                playerX.afterGame(gameState, moves);
-                playerO.afterGame(gameState, moves);
+                reporter.onGameEnd(gameState, winner);
+                contestantX.afterGame(moves);       // waits for abandoned moves, if any
+                contestantO.afterGame(moves);
                 return winner;
             } else {
-                int move = getCurrentPlayer().move();
-                System.out.println("Player " + gameState.getTurnDescription() + " played: " + move);
+                Contestant current = getCurrentContestant();
+                int move = current.move();
+                if (move == 0) {
+                    gameState.forfeit();
+                    continue;
+                }
+                reporter.onMove(gameState, move);
                 moves.add(move);
                 gameState.registerMove(move);
-                getCurrentPlayer().onOpponentMove(move);
+                current.resync();
+                getCurrentContestant().onOpponentMove(move);
             }
         }
     }
 
-    private Player getCurrentPlayer() {
+    private Contestant getCurrentContestant() {
         if (gameState.isTurnX()) {
-            return playerX;
+            return contestantX;
         } else if (gameState.isTurnO()) {
-            return playerO;
+            return contestantO;
         } else {
             throw new IllegalStateException("X nor O not on the turn! turn = " + gameState.getTurn());
         }
     }
 
+    /**
+     * A player in this game, along with its clock and the bookkeeping of abandoned moves.
+     */
+    private class Contestant implements GameClock {
+
+        private final Player player;
+
+        private final PlayerMetrics metrics;
+
+        /**
+         * Time spent by the player's moves so far.
+         */
+        private volatile long usedNanos;
+
+        /**
+         * When the current move started (0 if the player is not moving).
+         */
+        private volatile long moveStartNanos;
+
+        /**
+         * True if the last move of the player was substituted and the player was not told about it yet.
+         */
+        private boolean substituted;
+
+        /**
+         * The substituted move.
+         */
+        private int substitutedMove;
+
+        /**
+         * The call of move() that was abandoned because of a timeout, if it has not been resynced yet.
+         */
+        private MoveCall abandonedMove;
+
+        private Contestant(Player player, PlayerMetrics metrics) {
+            this.player = player;
+            this.metrics = metrics;
+        }
+
+        /**
+         * @return The move, or 0 if the player has forfeited the game.
+         */
+        private int move() {
+            if (timeControl == null) {
+                return moveWithoutTimeControl();
+            }
+            long limitNanos = getRemainingNanos();
+            if (!resync() || limitNanos <= 0) {
+                return timeout();
+            }
+            long start = System.nanoTime();
+            moveStartNanos = start;
+            MoveCall call = new MoveCall(player, matchMetrics);
+            MOVE_EXECUTOR.execute(call);
+            try {
+                if (call.await(limitNanos)) {
+                    return call.getResult();
+                } else {
+                    call.abandon();
+                    abandonedMove = call;
+                    return timeout();
+                }
+            } catch (InterruptedException e) {
+                call.abandon();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the move of " + player.getName(), e);
+            } finally {
+                long duration = System.nanoTime() - start;
+                usedNanos += duration;
+                moveStartNanos = 0;
+                if (metrics != null) {
+                    metrics.recordMove(duration);
+                }
+            }
+        }
+
+        private int moveWithoutTimeControl() {
+            if (metrics == null) {
+                return player.move();
+            }
+            long start = System.nanoTime();
+            int move = player.move();
+            metrics.recordMove(System.nanoTime() - start);
+            return move;
+        }
+
+        /**
+         * Applies the timeout policy.
+         * @return The substituted move, or 0 if the player forfeits.
+         */
+        private int timeout() {
+            TimeControl.TimeoutPolicy policy = timeControl.getPolicy();
+            reporter.onTimeout(gameState, policy);
+            int move;
+            switch (policy) {
+                case FORFEIT:
+                    return 0;
+                case RANDOM_MOVE:
+                    int freeFields = gameState.getBoard().getFreeFieldsMask();
+                    move = Board.getNthField(freeFields, (int) (Math.random() * Board.getFieldCount(freeFields)));
+                    break;
+                case FALLBACK:
+                    move = timeControl.getFallback().selectMove(gameState);
+                    break;
+                default:
+                    throw new AssertionError("Unknown timeout policy: " + policy);
+            }
+            substituted = true;
+            substitutedMove = move;
+            return move;
+        }
+
+        /**
+         * If the player's move was substituted, tells the player about it (provided the abandoned call,
+         * if any, has already returned).
+         *
+         * @return true if the player is in sync with the game and can be called
+         */
+        private boolean resync() {
+            if (!substituted) {
+                return true;
+            } else if (abandonedMove != null && !abandonedMove.isDone()) {
+                return false;
+            } else {
+                substituted = false;
+                abandonedMove = null;
+                player.onMoveSubstituted(gameState, substitutedMove);
+                return true;
+            }
+        }
+
+        private void onOpponentMove(int move) {
+            if (!substituted) {
+                player.onOpponentMove(move);
+            } else {
+                resync();       // the game state given to the player contains the opponent's move
+            }
+        }
+
+        /**
+         * Waits until the abandoned call of move() (if any) returns, so the player can be safely used again.
+         */
+        private void awaitAbandonedMove() {
+            if (abandonedMove != null) {
+                try {
+                    abandonedMove.await(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the abandoned move of " + player.getName(), e);
+                }
+                abandonedMove = null;
+            }
+        }
+
+        private void afterGame(List<Integer> moves) {
+            awaitAbandonedMove();
+            resync();
+            if (metrics == null) {
+                player.afterGame(gameState, moves);
+            } else {
+                long start = System.nanoTime();
+                player.afterGame(gameState, moves);
+                metrics.recordAfterGame(System.nanoTime() - start);
+            }
+        }
+
+        private long getRemainingNanos() {
+            long remaining = Long.MAX_VALUE;
+            if (timeControl.getMoveMillis() > 0) {
+                remaining = TimeUnit.MILLISECONDS.toNanos(timeControl.getMoveMillis());
+            }
+            if (timeControl.getGameMillis() > 0) {
+                remaining = Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(timeControl.getGameMillis()) - usedNanos);
+            }
+            return remaining;
+        }
+
+        private long getCurrentMoveNanos() {
+            long start = moveStartNanos;
+            return start != 0 ? System.nanoTime() - start : 0;
+        }
+
+        @Override
+        public long getRemainingMoveMillis() {
+            if (timeControl.getMoveMillis() == 0) {
+                return Long.MAX_VALUE;
+            }
+            return timeControl.getMoveMillis() - TimeUnit.NANOSECONDS.toMillis(getCurrentMoveNanos());
+        }
+
+        @Override
+        public long getRemainingGameMillis() {
+            if (timeControl.getGameMillis() == 0) {
+                return Long.MAX_VALUE;
+            }
+            return timeControl.getGameMillis() - TimeUnit.NANOSECONDS.toMillis(usedNanos + getCurrentMoveNanos());
+        }
+    }
+
+    /**
+     * A call of Player.move() executed in a separate thread. Unlike with a FutureTask, we know when the call
+     * really returns, even if it was abandoned (and interrupted) before.
+     */
+    private static class MoveCall implements Runnable {
+
+        private final Player player;
+
+        /**
+         * Where to add the memory allocated by the call (null if not measured).
+         */
+        private final MatchMetrics matchMetrics;
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        /**
+         * Thread executing the call (null if not running).
+         */
+        private Thread runner;
+
+        private boolean abandoned;
+
+        private volatile int result;
+
+        private volatile Throwable failure;
+
+        private MoveCall(Player player, MatchMetrics matchMetrics) {
+            this.player = player;
+            this.matchMetrics = matchMetrics;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (abandoned) {
+                    finished.countDown();
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            long allocationToken = matchMetrics != null ? matchMetrics.moveStarted() : -1;
+            try {
+                result = player.move();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                if (matchMetrics != null) {
+                    matchMetrics.moveFinished(allocationToken);     // before countDown: the game may end then
+                }
+                synchronized (this) {
+                    runner = null;
+                    Thread.interrupted();       // clears the interrupt caused by abandon(), if any
+                }
+                finished.countDown();
+            }
+        }
+
+        /**
+         * @return true if the call returned within the limit
+         */
+        private boolean await(long nanos) throws InterruptedException {
+            if (nanos == Long.MAX_VALUE) {
+                finished.await();
+                return true;
+            } else {
+                return finished.await(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Asks the call to stop, by interrupting the thread executing it.
+         */
+        private synchronized void abandon() {
+            abandoned = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        private boolean isDone() {
+            return finished.getCount() == 0;
+        }
+
+        private int getResult() {
+            Throwable t = failure;
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else if (t != null) {
+                throw new IllegalStateException("Player " + player.getName() + " failed to move: " + t, t);
+            }
+            return result;
+        }
+    }
 }
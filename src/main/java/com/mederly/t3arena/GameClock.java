@@ -0,0 +1,42 @@
+package com.mederly.t3arena;
+
+/**
+ *  Tells a player how much time it has left, see TimeControl. Players can read it during their move
+ *  e.g. to decide how deep to search.
+ *
+ *  Times are in milliseconds; Long.MAX_VALUE means there is no limit.
+ */
+public interface GameClock {
+
+    /**
+     * A clock for games without time control.
+     */
+    GameClock UNLIMITED = new GameClock() {
+        @Override
+        public long getRemainingMoveMillis() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public long getRemainingGameMillis() {
+            return Long.MAX_VALUE;
+        }
+    };
+
+    /**
+     * @return Time left for the current move (or for the next one, if the player is not on turn).
+     */
+    long getRemainingMoveMillis();
+
+    /**
+     * @return Time left for all the remaining moves of the player in this game.
+     */
+    long getRemainingGameMillis();
+
+    /**
+     * @return Time the player can spend on the current move before running out of either of the limits.
+     */
+    default long getRemainingMillis() {
+        return Math.min(getRemainingMoveMillis(), getRemainingGameMillis());
+    }
+}
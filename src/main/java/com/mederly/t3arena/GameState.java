@@ -5,6 +5,9 @@ import static com.mederly.t3arena.Board.PLAYER_X;
 
 /**
  *  Representation of the state of a game: (1) a board, (2) whose turn is it and (3) optionally a winner.
+ *
+ *  Besides deriving new states (GameState(previous, move)), the state can be changed in place by makeMove
+ *  and unmakeMove. This is what searching algorithms should use, as it needs no allocation per position.
  */
 public class GameState {
 
@@ -24,13 +27,53 @@ public class GameState {
     private Integer winner;
 
     /**
-     * Default constructor: creates a new game.
+     * True if the game was lost by the player on turn because of running out of time.
+     */
+    private boolean forfeited;
+
+    /**
+     * Moves made by makeMove and not yet taken back, so that unmakeMove knows what to take back.
+     * Created on the first makeMove.
+     */
+    private int[] undoStack;
+
+    private int undoCount;
+
+    /**
+     * Default constructor: creates a new game on the standard board.
      */
     public GameState() {
-        this.board = new Board();
+        this(BoardGeometry.STANDARD);
+    }
+
+    /**
+     * Creates a new game on a board with given geometry.
+     */
+    public GameState(BoardGeometry geometry) {
+        this.board = new Board(geometry);
         this.turn = PLAYER_X;
     }
 
+    /**
+     * Creates a copy of existing game state.
+     */
+    public GameState(GameState original) {
+        this.board = new Board(original.board);
+        this.turn = original.turn;
+        this.winner = original.winner;
+        this.forfeited = original.forfeited;
+    }
+
+    /**
+     * Creates a game state for the given position (the board is copied). The side on turn is derived from the
+     * board, assuming X starts.
+     */
+    public GameState(Board board) {
+        this.board = new Board(board);
+        this.turn = board.getPlayerOnTurn();
+        this.winner = board.getWinner();
+    }
+
     /**
      * Derives a new game state from existing one.
      */
@@ -75,6 +118,43 @@ public class GameState {
         changeTurn();
     }
 
+    /**
+     * Makes a move in place, remembering it so that it can be taken back by unmakeMove. The winner is updated
+     * as well; only the lines going through the field are checked.
+     */
+    public void makeMove(int field) {
+        if (undoStack == null) {
+            undoStack = new int[board.getGeometry().getFieldCount()];
+        }
+        board.registerMove(turn, field);
+        undoStack[undoCount++] = field;
+        changeTurn();
+        winner = board.getWinner();
+    }
+
+    /**
+     * Takes back the last move made by makeMove.
+     *
+     * @return The field of the move taken back.
+     */
+    public int unmakeMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        int field = undoStack[--undoCount];
+        board.unregisterMove(field);
+        changeTurn();
+        winner = board.getWinner();
+        return field;
+    }
+
+    /**
+     * @return Number of moves made by makeMove that can be taken back.
+     */
+    public int getUndoableMoves() {
+        return undoCount;
+    }
+
     private void changeTurn() {
         turn = getOtherPlayer(turn);
     }
@@ -90,16 +170,31 @@ public class GameState {
     }
 
     public Integer determineWinner() {
-        winner = board.getWinner();
+        if (!forfeited) {
+            winner = board.getWinner();
+        }
         return winner;
     }
 
+    /**
+     * The player on turn loses the game (e.g. because of running out of time).
+     */
+    public void forfeit() {
+        winner = (int) getOtherPlayer(turn);
+        forfeited = true;
+    }
+
+    public boolean isForfeited() {
+        return forfeited;
+    }
+
     @Override
     public String toString() {
         return "GameState{" +
                 "board=" + board +
                 ", turn=" + turn +
                 ", winner=" + winner +
+                (forfeited ? ", forfeited" : "") +
                 '}';
     }
 }
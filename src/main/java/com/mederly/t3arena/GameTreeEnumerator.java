@@ -0,0 +1,103 @@
+package com.mederly.t3arena;
+
+/**
+ *  Walks all games that can be played from a given position (the empty board by default), depth-first.
+ *
+ *  Unlike building a tree of GameState objects, only a single mutable board is used: moves are registered on the
+ *  way down and taken back on the way up, and the pending moves are kept on an explicit stack of field masks.
+ *  So nothing is allocated per node and the memory needed does not depend on the size of the game tree, which makes
+ *  it possible to enumerate also larger geometries.
+ *
+ *  Moves are tried in the order of field numbers. X is assumed to start.
+ */
+public class GameTreeEnumerator {
+
+    /**
+     * Receives the positions and games found during the enumeration. The board and the moves array are owned
+     * by the enumerator and change as it proceeds, so they must not be kept or modified by the visitor.
+     */
+    public interface Visitor {
+
+        /**
+         * Called for each position reached, including the starting one (depth = 0).
+         * @param depth Number of moves played since the starting position.
+         */
+        default void enterPosition(Board board, int depth) {
+        }
+
+        /**
+         * Called for each finished game.
+         * @param moves Fields played since the starting position: moves[0] .. moves[depth-1].
+         * @param winner 1 (PLAYER_X), 2 (PLAYER_O) or 0 (tie)
+         */
+        default void onGameEnd(Board board, int[] moves, int depth, int winner) {
+        }
+    }
+
+    private final Board start;
+
+    public GameTreeEnumerator() {
+        this(BoardGeometry.STANDARD);
+    }
+
+    public GameTreeEnumerator(BoardGeometry geometry) {
+        this(new Board(geometry));
+    }
+
+    /**
+     * Enumerates games continuing from the given position. The board is copied, so it can be freely reused
+     * by the caller.
+     */
+    public GameTreeEnumerator(Board start) {
+        this.start = new Board(start);
+    }
+
+    /**
+     * Walks all the games, reporting positions and finished games to the visitor.
+     * @return Number of games found.
+     */
+    public long enumerate(Visitor visitor) {
+        Board board = new Board(start);
+        visitor.enterPosition(board, 0);
+        Integer startWinner = board.getWinner();
+        if (startWinner != null) {
+            visitor.onGameEnd(board, new int[0], 0, startWinner);
+            return 1;
+        }
+
+        int maxDepth = Board.getFieldCount(board.getFreeFieldsMask());
+        int[] moves = new int[maxDepth];
+        int[] pending = new int[maxDepth + 1];      // moves yet to be tried at given depth
+        pending[0] = board.getFreeFieldsMask();
+        int depth = 0;
+        long games = 0;
+
+        while (true) {
+            int fields = pending[depth];
+            if (fields == 0) {
+                if (depth == 0) {
+                    return games;
+                }
+                depth--;
+                board.unregisterMove(moves[depth]);
+                continue;
+            }
+            int field = Board.getFirstField(fields);
+            pending[depth] = fields & (fields - 1);
+
+            board.registerMove(board.getPlayerOnTurn(), field);
+            moves[depth++] = field;
+            visitor.enterPosition(board, depth);
+
+            Integer winner = board.getWinner();
+            if (winner != null) {
+                visitor.onGameEnd(board, moves, depth, winner);
+                games++;
+                board.unregisterMove(field);
+                depth--;
+            } else {
+                pending[depth] = board.getFreeFieldsMask();
+            }
+        }
+    }
+}
@@ -1,5 +1,15 @@
 package com.mederly.t3arena;
 
+import com.mederly.t3arena.metrics.MatchMetrics;
+import com.mederly.t3arena.metrics.PlayerMetrics;
+import com.mederly.t3arena.report.ConsoleReporter;
+import com.mederly.t3arena.report.GameReporter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -7,14 +17,44 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class Match {
 
+    /**
+     * How many rounds are played by a single task when running in parallel.
+     */
+    private static final int ROUNDS_PER_TASK = 25;
+
+    /**
+     * Players used in sequential execution. If the match was created with factories, they are created when
+     * first needed (i.e. not at all if the match is played in parallel or by worker processes).
+     */
     private Player player1;
     private Player player2;
 
+    private final String name1;
+    private final String name2;
+
+    /**
+     * Factories for the players. Needed only for parallel execution, where each worker thread gets its own
+     * instances of the players.
+     */
+    private PlayerFactory playerFactory1;
+    private PlayerFactory playerFactory2;
+
+    /**
+     * Players used by individual worker threads (in parallel execution). Owned by the match rather than kept
+     * in thread-locals, so that the players are released when the match ends, even if the pool threads live on.
+     */
+    private final Map<Thread, Player[]> workerPlayers = new ConcurrentHashMap<>();
+
     /**
      * How many rounds there should be.
      */
     private int rounds;
 
+    /**
+     * Geometry of the board the games are played on.
+     */
+    private final BoardGeometry geometry;
+
     /**
      * Wins of the first player.
      */
@@ -30,37 +70,253 @@ public class Match {
      */
     private AtomicInteger ties;
 
+    /**
+     * Time spent by the players, games per second, memory allocated.
+     */
+    private final MatchMetrics metrics = new MatchMetrics();
+
+    /**
+     * Time limits for the players (null if there are none).
+     */
+    private TimeControl timeControl;
+
+    /**
+     * Where to report the progress of the match.
+     */
+    private GameReporter reporter = new ConsoleReporter();
+
     public Match(Player player1, Player player2, int rounds) {
+        this(player1, player2, rounds, BoardGeometry.STANDARD);
+    }
+
+    /**
+     * Creates a match that can be run also in parallel, see run(ForkJoinPool).
+     */
+    public Match(PlayerFactory playerFactory1, PlayerFactory playerFactory2, int rounds) {
+        this(playerFactory1, playerFactory2, rounds, BoardGeometry.STANDARD);
+    }
+
+    public Match(PlayerFactory playerFactory1, PlayerFactory playerFactory2, int rounds, BoardGeometry geometry) {
+        this(null, playerFactory1.getPlayerName(), playerFactory1, null, playerFactory2.getPlayerName(), playerFactory2,
+                rounds, geometry);
+    }
+
+    public Match(Player player1, Player player2, int rounds, BoardGeometry geometry) {
+        this(player1, player1.getName(), null, player2, player2.getName(), null, rounds, geometry);
+    }
+
+    private Match(Player player1, String name1, PlayerFactory playerFactory1, Player player2, String name2,
+            PlayerFactory playerFactory2, int rounds, BoardGeometry geometry) {
         this.player1 = player1;
         this.player2 = player2;
+        this.name1 = name1;
+        this.name2 = name2;
+        this.playerFactory1 = playerFactory1;
+        this.playerFactory2 = playerFactory2;
         this.wins1 = new AtomicInteger(0);
         this.wins2 = new AtomicInteger(0);
         this.ties = new AtomicInteger(0);
         this.rounds = rounds;
+        this.geometry = geometry;
     }
 
     /**
      * Executes the match. The result is remembered in wins1, wins2, and ties variables.
      */
     public void run() {
-        System.out.println("Starting match between " + player1 + " and " + player2 + " having " + rounds + " rounds");
+        reporter.onMatchStart(this, false);
+        metrics.matchStarted();
+        Player player1 = getPlayer1();
+        Player player2 = getPlayer2();
         player1.beforeMatch();
         player2.beforeMatch();
         for (int round = 1; round <= rounds; round++) {
             runGame(round, 1, player1, player2, wins1, wins2);
             runGame(round, 2, player2, player1, wins2, wins1);
         }
-        System.out.println(getResultAsString());
+        metrics.matchFinished();
+        reporter.onMatchEnd(this);
+    }
+
+    /**
+     * Executes the match in parallel: rounds are split into tasks executed by the given pool.
+     * Each worker thread plays with its own instances of the players, obtained from the player factories.
+     * The result is remembered in wins1, wins2, and ties variables.
+     *
+     * Can be called also from within a task running in the same pool (e.g. when matches themselves are run
+     * in parallel).
+     */
+    public void run(ForkJoinPool pool) {
+        if (playerFactory1 == null || playerFactory2 == null) {
+            throw new IllegalStateException("Parallel execution of a match needs player factories");
+        }
+        reporter.onMatchStart(this, true);
+        metrics.matchStarted();
+        RoundsTask task = new RoundsTask(1, rounds);
+        try {
+            if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+                task.invoke();
+            } else {
+                pool.invoke(task);
+            }
+        } finally {
+            workerPlayers.clear();
+        }
+        metrics.matchFinished();
+        reporter.onMatchEnd(this);
+    }
+
+    /**
+     * Plays rounds from "first" to "last" (inclusive), splitting them into smaller tasks if needed.
+     */
+    @SuppressWarnings("serial")      // tasks are never serialized
+    private class RoundsTask extends RecursiveAction {
+
+        private final int first;
+        private final int last;
+
+        private RoundsTask(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first < ROUNDS_PER_TASK) {
+                Player[] players = getWorkerPlayers();
+                for (int round = first; round <= last; round++) {
+                    runGame(round, 1, players[0], players[1], wins1, wins2);
+                    runGame(round, 2, players[1], players[0], wins2, wins1);
+                }
+            } else {
+                int middle = (first + last) / 2;
+                invokeAll(new RoundsTask(first, middle), new RoundsTask(middle + 1, last));
+            }
+        }
+    }
+
+    /**
+     * @return Players of the current worker thread (created when the thread plays its first rounds of the match).
+     */
+    private Player[] getWorkerPlayers() {
+        Player[] players = workerPlayers.get(Thread.currentThread());     // only this thread puts under its key
+        if (players == null) {
+            Player workerPlayer1 = playerFactory1.createPlayer();
+            Player workerPlayer2 = playerFactory2.createPlayer();
+            workerPlayer1.beforeMatch();
+            workerPlayer2.beforeMatch();
+            players = new Player[] { workerPlayer1, workerPlayer2 };
+            workerPlayers.put(Thread.currentThread(), players);
+        }
+        return players;
+    }
+
+    /**
+     * @return The first player (as used in sequential execution). Created by the factory if needed.
+     */
+    public synchronized Player getPlayer1() {
+        if (player1 == null) {
+            player1 = playerFactory1.createPlayer();
+        }
+        return player1;
+    }
+
+    /**
+     * @return The second player (as used in sequential execution). Created by the factory if needed.
+     */
+    public synchronized Player getPlayer2() {
+        if (player2 == null) {
+            player2 = playerFactory2.createPlayer();
+        }
+        return player2;
+    }
+
+    public String getPlayerName1() {
+        return name1;
+    }
+
+    public String getPlayerName2() {
+        return name2;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public int getWins1() {
+        return wins1.get();
+    }
+
+    public int getWins2() {
+        return wins2.get();
+    }
+
+    public int getTies() {
+        return ties.get();
+    }
+
+    public MatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    public TimeControl getTimeControl() {
+        return timeControl;
+    }
+
+    /**
+     * Sets time limits for the players. By default, there are none.
+     */
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    public GameReporter getReporter() {
+        return reporter;
+    }
+
+    /**
+     * Sets where the progress of the match is reported. By default, everything is printed to the console.
+     */
+    public void setReporter(GameReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    /**
+     * Adds results of games played outside of this object, e.g. rounds of the match played by worker processes
+     * (see distributed.Coordinator). Their metrics are to be added to getMetrics().
+     */
+    public void addResults(int wins1, int wins2, int ties) {
+        if (wins1 < 0 || wins2 < 0 || ties < 0) {
+            throw new IllegalArgumentException("Illegal results: " + wins1 + ", " + wins2 + ", " + ties);
+        }
+        this.wins1.addAndGet(wins1);
+        this.wins2.addAndGet(wins2);
+        this.ties.addAndGet(ties);
     }
 
     public String getResultAsString() {
-        return "Result of the match: " + player1 + ": " + wins1 + " wins, " + player2 + ": " + wins2 + " wins, " + ties + " ties";
+        return "Result of the match: " + name1 + ": " + wins1 + " wins, " + name2 + ": " + wins2 + " wins, " + ties + " ties";
+    }
+
+    /**
+     * @return Performance metrics of the match: latencies of the players' moves, games per second, allocation per game.
+     */
+    public String getMetricsAsString() {
+        return metrics.getSummary(name1, name2);
     }
 
     private void runGame(int round, int gameNumber, Player playerX, Player playerO, AtomicInteger winsX, AtomicInteger winsO) {
-        System.out.println("Running game with X=" + playerX + ", O=" + playerO + " (round=" + round + ", game=" + gameNumber + ")");
-        Game game = new Game(playerX, playerO);
+        reporter.onGameStart(this, playerX, playerO, round, gameNumber);
+        PlayerMetrics metricsX = gameNumber == 1 ? metrics.getPlayer1() : metrics.getPlayer2();
+        PlayerMetrics metricsO = gameNumber == 1 ? metrics.getPlayer2() : metrics.getPlayer1();
+        long gameToken = metrics.gameStarted();
+        Game game = new Game(playerX, playerO, geometry, reporter, metricsX, metricsO, timeControl, metrics);
         int winner = game.run();
+        metrics.gameFinished(gameToken);
 
         Player winnerPlayer;
         switch (winner) {
@@ -76,6 +332,6 @@ public class Match {
                 winnerPlayer = null;
                 ties.incrementAndGet();
         }
-        System.out.println("Winner: " + winnerPlayer + "; score is " + wins1 + ":" + ties + ":" + wins2);
+        reporter.onGameScored(this, winnerPlayer);
     }
 }
\ No newline at end of file
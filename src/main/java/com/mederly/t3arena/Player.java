@@ -21,6 +21,22 @@ public interface Player {
      */
     void beforeGame(byte side);
 
+    /**
+     * This method is called before a single game starts. It tells the player also the geometry of the board.
+     *
+     * Players that can play on non-standard boards should override this method. The default implementation
+     * accepts only the standard 3x3 board.
+     *
+     * @param side Which side we are playing for? 1 = PLAYER_X, 2 = PLAYER_O
+     * @param geometry Geometry of the board the game is played on.
+     */
+    default void beforeGame(byte side, BoardGeometry geometry) {
+        if (!geometry.isStandard()) {
+            throw new UnsupportedOperationException("Player " + getName() + " cannot play on " + geometry + " board");
+        }
+        beforeGame(side);
+    }
+
     /**
      * Called after the game is over. Useful e.g. for self-learning players.
      *
@@ -34,14 +50,35 @@ public interface Player {
      *
      * @param field An absolute number of a field that has been marked by the opponent (1 = upper left,
      *              2 = upper center, 3 = upper right, 4 = center left, 5 = center, 6 = center right,
-     *              7 = down left, 8 = down center, 9 = down right)
+     *              7 = down left, 8 = down center, 9 = down right). On non-standard boards fields are numbered
+     *              row by row in the same way, see BoardGeometry.
      */
     void onOpponentMove(int field);
 
+    /**
+     * Called when our move was not made by us but substituted by the game, because we ran out of time
+     * (see TimeControl). If our move() call was abandoned, this method is called only after it returns.
+     *
+     * @param gameState The actual state of the game: it includes the substituted move and possibly also moves
+     *                  made later (of which we were not informed). Must not be modified.
+     * @param move The move made on our behalf.
+     */
+    default void onMoveSubstituted(GameState gameState, int move) {
+        throw new IllegalStateException("Player " + getName() + " cannot continue after its move was substituted by " + move);
+    }
+
+    /**
+     * Called before each game. The clock tells how much time the player has left for its moves.
+     * It is GameClock.UNLIMITED for games without time control.
+     */
+    default void setClock(GameClock clock) {
+        // the player does not care
+    }
+
     /**
      * Obtains our move.
      *
-     * @return The move to be made (1..9)
+     * @return The move to be made (1..9, or up to the number of fields for non-standard boards)
      */
     int move();
 
@@ -0,0 +1,25 @@
+package com.mederly.t3arena;
+
+/**
+ *  Creates instances of a player.
+ *
+ *  Needed when games are run in parallel: players are generally not thread-safe (e.g. PlayerBase keeps
+ *  the state of the current game), so each worker thread gets its own instance.
+ */
+@FunctionalInterface
+public interface PlayerFactory {
+
+    /**
+     * @return A new instance of the player. Instances should have the same name, as they represent the same player.
+     */
+    Player createPlayer();
+
+    /**
+     * @return Name of the players created. The default implementation creates a player to find out; factories
+     * that know the name beforehand (e.g. those from PlayerRegistry) override this, as creating a player may be
+     * expensive.
+     */
+    default String getPlayerName() {
+        return createPlayer().getName();
+    }
+}
@@ -0,0 +1,101 @@
+package com.mederly.t3arena;
+
+/**
+ *  Time limits for the players of a game: per move, per game (i.e. the total time of all moves of the player
+ *  in the game), or both. A limit of 0 means "no limit". The same limits apply to both players.
+ *
+ *  What happens when a player exceeds its time is given by the timeout policy.
+ */
+public class TimeControl {
+
+    /**
+     * What to do when a player does not return its move in time.
+     */
+    public enum TimeoutPolicy {
+
+        /**
+         * The player loses the game.
+         */
+        FORFEIT,
+
+        /**
+         * A random free field is taken instead of the player's move.
+         */
+        RANDOM_MOVE,
+
+        /**
+         * The move is selected by the fallback move selector.
+         */
+        FALLBACK
+    }
+
+    /**
+     * Selects a move on behalf of a player that ran out of time. Should be fast.
+     */
+    public interface FallbackMoveSelector {
+
+        /**
+         * @param gameState Current state of the game. Must not be modified.
+         * @return A free field.
+         */
+        int selectMove(GameState gameState);
+    }
+
+    private final long moveMillis;
+
+    private final long gameMillis;
+
+    private final TimeoutPolicy policy;
+
+    private final FallbackMoveSelector fallback;
+
+    public TimeControl(long moveMillis, long gameMillis, TimeoutPolicy policy) {
+        this(moveMillis, gameMillis, policy, null);
+    }
+
+    /**
+     * @param moveMillis Limit for a single move in milliseconds (0 = no limit).
+     * @param gameMillis Limit for all moves of a player in a game in milliseconds (0 = no limit).
+     * @param fallback Fallback move selector; needed only for FALLBACK policy.
+     */
+    public TimeControl(long moveMillis, long gameMillis, TimeoutPolicy policy, FallbackMoveSelector fallback) {
+        if (moveMillis < 0 || gameMillis < 0) {
+            throw new IllegalArgumentException("Illegal time limits: " + moveMillis + " ms per move, " + gameMillis + " ms per game");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("No timeout policy");
+        }
+        if (policy == TimeoutPolicy.FALLBACK && fallback == null) {
+            throw new IllegalArgumentException("FALLBACK policy needs a fallback move selector");
+        }
+        this.moveMillis = moveMillis;
+        this.gameMillis = gameMillis;
+        this.policy = policy;
+        this.fallback = fallback;
+    }
+
+    public long getMoveMillis() {
+        return moveMillis;
+    }
+
+    public long getGameMillis() {
+        return gameMillis;
+    }
+
+    public TimeoutPolicy getPolicy() {
+        return policy;
+    }
+
+    public FallbackMoveSelector getFallback() {
+        return fallback;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeControl{" +
+                "moveMillis=" + moveMillis +
+                ", gameMillis=" + gameMillis +
+                ", policy=" + policy +
+                '}';
+    }
+}
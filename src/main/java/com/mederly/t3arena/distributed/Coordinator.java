@@ -0,0 +1,463 @@
+package com.mederly.t3arena.distributed;
+
+import com.mederly.t3arena.Match;
+import com.mederly.t3arena.TimeControl;
+import com.mederly.t3arena.metrics.MatchMetrics;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Runs matches in worker processes: local JVMs started by the coordinator, each running Worker.
+ *  This way, a tournament is not limited by the heap and garbage collection of a single JVM, and a crash
+ *  of a player (e.g. an experimental one running out of memory) does not bring the whole arena down.
+ *
+ *  Rounds of a match are split into shards that are sent to the workers as they become free. When all the shards
+ *  are played, their results and metrics are added to the Match object (a failed match gets none of them).
+ *  Players are referred to by their names, so they must be in the standard player registry
+ *  (see PlayerRegistry.createStandard). Individual games are not reported; the match reporter learns only
+ *  about the start and the end of the match.
+ *
+ *  If a worker process dies, it is restarted and its shard is tried again (once). The same happens if a shard
+ *  timeout is set and the worker does not reply in time (e.g. because a player hangs): the worker is killed.
+ *  A shard failing twice, or a worker reporting an error (e.g. an unknown player), makes the match fail.
+ */
+public class Coordinator implements Closeable {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static final int QUIT_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Marks the end of work for worker handlers.
+     */
+    private static final Shard END = new Shard(null, 0);
+
+    private final int workers;
+
+    /**
+     * How many rounds are played by a worker at once.
+     */
+    private final int roundsPerShard;
+
+    private String javaCommand = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+    private String classPath = System.getProperty("java.class.path");
+
+    /**
+     * E.g. heap size of the workers.
+     */
+    private List<String> jvmOptions = new ArrayList<>();
+
+    /**
+     * Number of threads used by each worker to play its rounds.
+     */
+    private int workerThreads = 1;
+
+    /**
+     * How long to wait for the result of a shard before the worker is killed (0 = no limit).
+     */
+    private long shardTimeoutMillis;
+
+    /**
+     * Kills the workers whose shards time out. Created when the coordinator is started.
+     */
+    private ScheduledExecutorService watchdog;
+
+    private final BlockingQueue<Shard> shards = new LinkedBlockingQueue<>();
+
+    private final AtomicLong nextShardId = new AtomicLong(1);
+
+    private final List<Thread> handlers = new ArrayList<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param workers Number of worker processes.
+     * @param roundsPerShard How many rounds are played by a worker at once.
+     */
+    public Coordinator(int workers, int roundsPerShard) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Illegal number of workers: " + workers);
+        }
+        if (roundsPerShard < 1) {
+            throw new IllegalArgumentException("Illegal number of rounds per shard: " + roundsPerShard);
+        }
+        this.workers = workers;
+        this.roundsPerShard = roundsPerShard;
+    }
+
+    /**
+     * Sets the java executable used to start the workers. By default, the one running the coordinator is used.
+     */
+    public void setJavaCommand(String javaCommand) {
+        this.javaCommand = javaCommand;
+    }
+
+    /**
+     * Sets the class path of the workers. By default, the class path of the coordinator is used.
+     */
+    public void setClassPath(String classPath) {
+        this.classPath = classPath;
+    }
+
+    public void setJvmOptions(List<String> jvmOptions) {
+        this.jvmOptions = new ArrayList<>(jvmOptions);
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    /**
+     * Sets how long a worker may play a shard. If it does not reply in time, it is killed and the shard is
+     * handled like one of a crashed worker. By default (0), there is no limit.
+     */
+    public void setShardTimeoutMillis(long shardTimeoutMillis) {
+        if (shardTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Illegal shard timeout: " + shardTimeoutMillis);
+        }
+        this.shardTimeoutMillis = shardTimeoutMillis;
+    }
+
+    /**
+     * Starts the threads communicating with the workers. Worker processes themselves are started when first needed.
+     * Called automatically by submit, if needed.
+     */
+    public synchronized void start() {
+        if (closed) {
+            throw new IllegalStateException("Coordinator is closed");
+        }
+        if (!handlers.isEmpty()) {
+            return;
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "worker-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 1; i <= workers; i++) {
+            Thread handler = new Thread(new WorkerHandler(), "worker-handler-" + i);
+            handler.setDaemon(true);
+            handler.start();
+            handlers.add(handler);
+        }
+    }
+
+    /**
+     * Starts the match in the workers.
+     *
+     * @return Future completed when all rounds of the match are played (or completed exceptionally if the match fails).
+     */
+    public CompletableFuture<Void> submit(Match match) {
+        String name1 = match.getPlayerName1();
+        String name2 = match.getPlayerName2();
+        checkName(name1);
+        checkName(name2);
+        TimeControl timeControl = match.getTimeControl();
+        if (timeControl != null && timeControl.getPolicy() == TimeControl.TimeoutPolicy.FALLBACK) {
+            throw new IllegalArgumentException("Time control with a fallback move selector can't be sent to workers");
+        }
+        start();
+
+        int shardCount = (match.getRounds() + roundsPerShard - 1) / roundsPerShard;
+        MatchRun run = new MatchRun(match, shardCount);
+        match.getReporter().onMatchStart(match, true);
+        match.getMetrics().matchStarted();
+        if (shardCount == 0) {
+            run.finish();
+        }
+        for (int first = 1; first <= match.getRounds(); first += roundsPerShard) {
+            int rounds = Math.min(roundsPerShard, match.getRounds() - first + 1);
+            shards.add(new Shard(run, rounds));
+        }
+        return run.future;
+    }
+
+    /**
+     * Runs the match in the workers and waits for its end.
+     */
+    public void run(Match match) {
+        try {
+            submit(match).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static void checkName(String name) {
+        if (name.isEmpty() || name.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Player name can't be sent to workers: '" + name + "'");
+        }
+    }
+
+    /**
+     * Stops the workers. Shards submitted before are played first.
+     */
+    @Override
+    public void close() {
+        List<Thread> toJoin;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toJoin = new ArrayList<>(handlers);
+        }
+        for (int i = 0; i < toJoin.size(); i++) {
+            shards.add(END);
+        }
+        for (Thread handler : toJoin) {
+            try {
+                handler.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while stopping the workers", e);
+            }
+        }
+        for (Shard shard; (shard = shards.poll()) != null; ) {
+            if (shard != END) {
+                shard.run.fail("coordinator was closed");        // e.g. a shard retried while closing
+            }
+        }
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+    /**
+     * A match being played by the workers. Results of the shards are collected here and added to the match
+     * only when all the shards are played, so a failed match has no partial results.
+     */
+    private static class MatchRun {
+
+        private final Match match;
+        private final AtomicInteger remainingShards;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private final AtomicInteger wins1 = new AtomicInteger();
+        private final AtomicInteger wins2 = new AtomicInteger();
+        private final AtomicInteger ties = new AtomicInteger();
+        private final MatchMetrics metrics = new MatchMetrics();
+
+        private MatchRun(Match match, int shards) {
+            this.match = match;
+            this.remainingShards = new AtomicInteger(shards);
+        }
+
+        private void shardDone(String[] tokens) {
+            int shardWins1 = Integer.parseInt(tokens[2]);
+            int shardWins2 = Integer.parseInt(tokens[3]);
+            int shardTies = Integer.parseInt(tokens[4]);
+            metrics.addEncoded(String.join(" ", Arrays.copyOfRange(tokens, 5, tokens.length)));
+            wins1.addAndGet(shardWins1);
+            wins2.addAndGet(shardWins2);
+            ties.addAndGet(shardTies);
+            if (remainingShards.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        private synchronized void finish() {
+            if (future.isDone()) {
+                return;         // the match has failed meanwhile
+            }
+            match.addResults(wins1.get(), wins2.get(), ties.get());
+            match.getMetrics().addEncoded(metrics.encode());
+            match.getMetrics().matchFinished();
+            match.getReporter().onMatchEnd(match);
+            future.complete(null);
+        }
+
+        private synchronized void fail(String message) {
+            future.completeExceptionally(new IllegalStateException("Match " + match.getPlayerName1() + " vs " +
+                    match.getPlayerName2() + " failed: " + message));
+        }
+    }
+
+    /**
+     * Rounds of a match to be played by a worker at once.
+     */
+    private static class Shard {
+
+        private final MatchRun run;
+        private final int rounds;
+        private int attempts;
+
+        private Shard(MatchRun run, int rounds) {
+            this.run = run;
+            this.rounds = rounds;
+        }
+    }
+
+    /**
+     * Sends shards to a worker process (starting or restarting it as needed) and processes the replies.
+     */
+    private class WorkerHandler implements Runnable {
+
+        private Process process;
+        private BufferedReader in;
+        private PrintWriter out;
+
+        @Override
+        public void run() {
+            try {
+                for (;;) {
+                    Shard shard = shards.take();
+                    if (shard == END) {
+                        break;
+                    }
+                    if (!shard.run.future.isDone()) {       // i.e. the match has not failed yet
+                        play(shard);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // just stop
+            } finally {
+                stopProcess();
+            }
+        }
+
+        private void play(Shard shard) {
+            Match match = shard.run.match;
+            long id = nextShardId.getAndIncrement();
+            String reply;
+            try {
+                if (process == null) {
+                    startProcess();
+                }
+                out.println(Protocol.formatPlay(id, match.getPlayerName1(), match.getPlayerName2(),
+                        shard.rounds, match.getGeometry(), match.getTimeControl()));
+                out.flush();
+                reply = readReply();
+            } catch (IOException e) {
+                System.err.println("Worker failed: " + e.getMessage());
+                killProcess();
+                if (++shard.attempts < MAX_ATTEMPTS && !closed) {
+                    shards.add(shard);
+                } else {
+                    shard.run.fail("worker failed: " + e.getMessage());
+                }
+                return;
+            }
+            String[] tokens = reply.split(" ");
+            try {
+                if (tokens.length >= 2 && Protocol.DONE.equals(tokens[0]) && tokens[1].equals(String.valueOf(id))) {
+                    shard.run.shardDone(tokens);
+                } else if (tokens.length >= 2 && Protocol.ERROR.equals(tokens[0])) {
+                    shard.run.fail(reply.substring(reply.indexOf(' ', Protocol.ERROR.length() + 1) + 1));
+                } else {
+                    shard.run.fail("unexpected reply from worker: " + reply);
+                }
+            } catch (RuntimeException e) {
+                shard.run.fail("illegal reply from worker: " + reply + " (" + e + ")");
+            }
+        }
+
+        private void startProcess() throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(javaCommand);
+            command.addAll(jvmOptions);
+            command.add("-cp");
+            command.add(classPath);
+            command.add(Worker.class.getName());
+            command.add(String.valueOf(workerThreads));
+            process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            String ready = readLine();
+            if (!ready.equals(Protocol.READY + " " + Protocol.VERSION)) {
+                throw new IOException("Unexpected greeting from worker: " + ready);
+            }
+        }
+
+        /**
+         * Reads the reply to a PLAY command. If the shard timeout elapses first, the worker is killed.
+         */
+        private String readReply() throws IOException {
+            if (shardTimeoutMillis == 0) {
+                return readLine();
+            }
+            Process worker = process;
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> kill = watchdog.schedule(() -> {
+                timedOut.set(true);
+                worker.destroyForcibly();       // makes readLine() below return
+            }, shardTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                return readLine();
+            } catch (IOException e) {
+                if (timedOut.get()) {
+                    throw new IOException("no reply within " + shardTimeoutMillis + " ms", e);
+                }
+                throw e;
+            } finally {
+                if (!kill.cancel(false) && timedOut.get()) {
+                    killProcess();      // killed just after replying; a new worker will be started for the next shard
+                }
+            }
+        }
+
+        private String readLine() throws IOException {
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("worker process ended" + getExitCode());
+            }
+            return line;
+        }
+
+        private String getExitCode() {
+            try {
+                return process.waitFor(1, TimeUnit.SECONDS) ? " with exit code " + process.exitValue() : "";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "";
+            }
+        }
+
+        private void stopProcess() {
+            if (process != null) {
+                out.println(Protocol.QUIT);
+                out.flush();
+                try {
+                    if (!process.waitFor(QUIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        killProcess();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    killProcess();
+                }
+                process = null;
+            }
+        }
+
+        private void killProcess() {
+            if (process != null) {
+                process.destroyForcibly();
+                process = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.mederly.t3arena.distributed;
+
+import com.mederly.t3arena.Player;
+import com.mederly.t3arena.PlayerFactory;
+import com.mederly.t3arena.players.FirstMoveSelector;
+import com.mederly.t3arena.players.RandomMoveSelector;
+import com.mederly.t3arena.players.RandomPlayer;
+import com.mederly.t3arena.players.SequentialPlayer;
+import com.mederly.t3arena.players.mcts.MctsPlayer;
+import com.mederly.t3arena.players.minimax.MinimaxPlayer;
+import com.mederly.t3arena.players.stat.CompleteStatisticsDataSource;
+import com.mederly.t3arena.players.stat.NotLoseRatioSelector;
+import com.mederly.t3arena.players.stat.StatisticalPlayer;
+import com.mederly.t3arena.players.stat.WinRatioSelector;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *  Player factories by name. Players cannot be sent to another process, so the coordinator and its workers
+ *  refer to them by names, and each process creates the players from its own registry.
+ *
+ *  The name of a player in the registry must be the name of the players created by the factory. Factories obtained
+ *  from the registry know the name without creating a player, so e.g. the coordinator never creates the players
+ *  (nor the data they need) itself.
+ */
+public class PlayerRegistry {
+
+    private final Map<String, PlayerFactory> factories = new LinkedHashMap<>();
+
+    public void register(String name, PlayerFactory factory) {
+        if (name.isEmpty() || name.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Illegal player name: '" + name + "'");
+        }
+        if (factories.containsKey(name)) {
+            throw new IllegalArgumentException("Player " + name + " is already registered");
+        }
+        factories.put(name, new RegisteredFactory(name, factory));
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no such player
+     */
+    public PlayerFactory getFactory(String name) {
+        PlayerFactory factory = factories.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown player: " + name);
+        }
+        return factory;
+    }
+
+    public boolean contains(String name) {
+        return factories.containsKey(name);
+    }
+
+    /**
+     * @return Names of the players, in the order they were registered.
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(factories.keySet());
+    }
+
+    /**
+     * Creates the registry of the players meeting in the arena (and available to worker processes).
+     *
+     * @param pool Pool used to generate the statistics for statistical players (null = sequentially).
+     */
+    public static PlayerRegistry createStandard(ForkJoinPool pool) {
+        PlayerRegistry registry = new PlayerRegistry();
+        registry.register("Sequential1", () -> new SequentialPlayer("Sequential1"));
+        registry.register("Sequential2", () -> new SequentialPlayer("Sequential2"));
+        registry.register("Random1", () -> new RandomPlayer("Random1"));
+        registry.register("Random2", () -> new RandomPlayer("Random2"));
+        registry.register("MinimaxFirst1", () -> new MinimaxPlayer("MinimaxFirst1", new FirstMoveSelector()));
+        registry.register("MinimaxFirst2", () -> new MinimaxPlayer("MinimaxFirst2", new FirstMoveSelector()));
+        registry.register("MinimaxRandom1", () -> new MinimaxPlayer("MinimaxRandom1", new RandomMoveSelector()));
+        registry.register("Mcts1", () -> new MctsPlayer("Mcts1", 1000));
+
+        // The data source is read-only, so it can be shared by all instances. It is generated when first needed.
+        StatisticsHolder statistics = new StatisticsHolder(pool);
+        registry.register("CompleteStatistics-Win", () -> new StatisticalPlayer("CompleteStatistics-Win",
+                statistics.get(), new WinRatioSelector(), new RandomMoveSelector()));
+        registry.register("CompleteStatistics-NotLose", () -> new StatisticalPlayer("CompleteStatistics-NotLose",
+                statistics.get(), new NotLoseRatioSelector(), new RandomMoveSelector()));
+        return registry;
+    }
+
+    private static class RegisteredFactory implements PlayerFactory {
+
+        private final String name;
+        private final PlayerFactory factory;
+
+        private RegisteredFactory(String name, PlayerFactory factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        @Override
+        public Player createPlayer() {
+            return factory.createPlayer();
+        }
+
+        @Override
+        public String getPlayerName() {
+            return name;
+        }
+    }
+
+    private static class StatisticsHolder {
+
+        private final ForkJoinPool pool;
+
+        private CompleteStatisticsDataSource dataSource;
+
+        private StatisticsHolder(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        private synchronized CompleteStatisticsDataSource get() {
+            if (dataSource == null) {
+                dataSource = new CompleteStatisticsDataSource(pool);
+            }
+            return dataSource;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mederly.t3arena.distributed;
+
+import com.mederly.t3arena.BoardGeometry;
+import com.mederly.t3arena.TimeControl;
+
+/**
+ *  Line-based protocol between the coordinator and a worker process (over the worker's stdin and stdout).
+ *  Tokens are separated by spaces; player names must not contain whitespace.
+ *
+ *  Worker, when started:        READY version
+ *  Coordinator:                 PLAY id player1 player2 rounds width height winLength moveMillis gameMillis policy|NONE
+ *  Worker, after playing:       DONE id wins1 wins2 ties metrics... (see MatchMetrics.encode)
+ *                           or  ERROR id message
+ *  Coordinator, at the end:     QUIT
+ *
+ *  A PLAY command asks the worker to play the given number of rounds (i.e. pairs of games) of a match.
+ */
+class Protocol {
+
+    static final int VERSION = 1;
+
+    static final String READY = "READY";
+    static final String PLAY = "PLAY";
+    static final String DONE = "DONE";
+    static final String ERROR = "ERROR";
+    static final String QUIT = "QUIT";
+
+    private static final String NO_TIME_CONTROL = "NONE";
+
+    static String formatPlay(long id, String player1, String player2, int rounds, BoardGeometry geometry,
+            TimeControl timeControl) {
+        return PLAY + " " + id + " " + player1 + " " + player2 + " " + rounds + " " +
+                geometry.getWidth() + " " + geometry.getHeight() + " " + geometry.getWinLength() + " " +
+                (timeControl != null ?
+                        timeControl.getMoveMillis() + " " + timeControl.getGameMillis() + " " + timeControl.getPolicy() :
+                        "0 0 " + NO_TIME_CONTROL);
+    }
+
+    static BoardGeometry parseGeometry(String[] tokens, int index) {
+        BoardGeometry geometry = new BoardGeometry(Integer.parseInt(tokens[index]), Integer.parseInt(tokens[index + 1]),
+                Integer.parseInt(tokens[index + 2]));
+        return geometry.isStandard() ? BoardGeometry.STANDARD : geometry;
+    }
+
+    static TimeControl parseTimeControl(String[] tokens, int index) {
+        if (NO_TIME_CONTROL.equals(tokens[index + 2])) {
+            return null;
+        }
+        return new TimeControl(Long.parseLong(tokens[index]), Long.parseLong(tokens[index + 1]),
+                TimeControl.TimeoutPolicy.valueOf(tokens[index + 2]));
+    }
+
+    /**
+     * Makes a message fit on a single line.
+     */
+    static String toSingleLine(String message) {
+        return message != null ? message.replaceAll("\\s+", " ") : "";
+    }
+}
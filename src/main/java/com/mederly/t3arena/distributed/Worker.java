@@ -0,0 +1,95 @@
+package com.mederly.t3arena.distributed;
+
+import com.mederly.t3arena.Match;
+import com.mederly.t3arena.report.NoOpReporter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *  A worker process: plays parts of matches as requested by the coordinator, see Protocol.
+ *  Players are taken from a player registry by their names.
+ *
+ *  Nothing is reported about individual games; only the results and metrics are sent back.
+ */
+public class Worker {
+
+    private final PlayerRegistry registry;
+
+    /**
+     * Pool used to play the rounds in parallel. If null, they are played sequentially.
+     */
+    private final ForkJoinPool pool;
+
+    public Worker(PlayerRegistry registry, ForkJoinPool pool) {
+        this.registry = registry;
+        this.pool = pool;
+    }
+
+    /**
+     * Processes commands until QUIT is received or the input ends.
+     */
+    public void serve(BufferedReader in, PrintWriter out) throws IOException {
+        out.println(Protocol.READY + " " + Protocol.VERSION);
+        out.flush();
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] tokens = line.trim().split(" ");
+            if (Protocol.QUIT.equals(tokens[0])) {
+                break;
+            }
+            out.println(process(tokens));
+            out.flush();
+        }
+    }
+
+    /**
+     * @return The reply.
+     */
+    private String process(String[] tokens) {
+        String id = tokens.length > 1 ? tokens[1] : "-";
+        try {
+            if (!Protocol.PLAY.equals(tokens[0]) || tokens.length != 11) {
+                throw new IllegalArgumentException("Unknown command: " + String.join(" ", tokens));
+            }
+            Match match = new Match(registry.getFactory(tokens[2]), registry.getFactory(tokens[3]),
+                    Integer.parseInt(tokens[4]), Protocol.parseGeometry(tokens, 5));
+            match.setReporter(NoOpReporter.INSTANCE);
+            match.setTimeControl(Protocol.parseTimeControl(tokens, 8));
+            if (pool != null) {
+                match.run(pool);
+            } else {
+                match.run();
+            }
+            return Protocol.DONE + " " + id + " " + match.getWins1() + " " + match.getWins2() + " " + match.getTies() +
+                    " " + match.getMetrics().encode();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return Protocol.ERROR + " " + id + " " + Protocol.toSingleLine(e.toString());
+        }
+    }
+
+    /**
+     * Runs a worker communicating over stdin and stdout. Started by the coordinator; the argument is the number
+     * of threads to be used (default: 1, i.e. rounds are played sequentially).
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream protocolOut = System.out;
+        System.setOut(System.err);      // anything printed e.g. by the players must not interfere with the protocol
+
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        Worker worker = new Worker(PlayerRegistry.createStandard(pool), pool);
+        worker.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                new PrintWriter(new OutputStreamWriter(protocolOut, StandardCharsets.UTF_8)));
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
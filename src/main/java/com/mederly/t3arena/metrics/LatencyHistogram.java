@@ -0,0 +1,152 @@
+package com.mederly.t3arena.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Histogram of durations (in nanoseconds), from which percentiles can be read.
+ *
+ *  Values are counted in buckets of exponentially growing width: each power of two is divided into 16 buckets,
+ *  so the percentiles are precise to about 6 %. The maximum is exact. The memory needed is fixed (under 8 KB)
+ *  regardless of the number of values recorded.
+ *
+ *  Thread-safe, so it can be shared by players of a match running in parallel.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;      // just in case the clock goes wrong
+        }
+        counts.incrementAndGet(getBucket(nanos));
+        count.increment();
+        max.accumulate(nanos);
+    }
+
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return A value in the middle of the bucket.
+     */
+    private static long getBucketValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowerBound + ((1L << shift) >> 1);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile E.g. 50 for the median or 99 for the 99th percentile.
+     * @return The value (approximately) at the given percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Illegal percentile: " + percentile);
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(getBucketValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return Contents of the histogram as a single token (no whitespace), e.g. "230400/1:5,70:120", i.e. the maximum
+     * followed by non-empty buckets and their counts. Can be added to another histogram by addEncoded.
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder().append(getMax()).append('/');
+        boolean first = true;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount != 0) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append(i).append(':').append(bucketCount);
+                first = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Adds values of a histogram encoded by encode() (e.g. one recorded in another process) to this one.
+     */
+    public void addEncoded(String encoded) {
+        int slash = encoded.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Illegal encoded histogram: " + encoded);
+        }
+        try {
+            long encodedMax = Long.parseLong(encoded.substring(0, slash));
+            if (slash + 1 < encoded.length()) {
+                for (String bucket : encoded.substring(slash + 1).split(",")) {
+                    int colon = bucket.indexOf(':');
+                    long bucketCount = Long.parseLong(bucket.substring(colon + 1));
+                    counts.addAndGet(Integer.parseInt(bucket.substring(0, colon)), bucketCount);
+                    count.add(bucketCount);
+                }
+            }
+            max.accumulate(encodedMax);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Illegal encoded histogram: " + encoded, e);
+        }
+    }
+
+    /**
+     * @return E.g. "p50 1.2 us, p99 15.0 us, max 230.4 us".
+     */
+    public String getSummary() {
+        return "p50 " + formatMicros(getPercentile(50)) + ", p99 " + formatMicros(getPercentile(99)) +
+                ", max " + formatMicros(getMax());
+    }
+
+    private static String formatMicros(long nanos) {
+        return String.format("%.1f us", nanos / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + getCount() +
+                ", " + getSummary() +
+                '}';
+    }
+}
@@ -0,0 +1,171 @@
+package com.mederly.t3arena.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Performance metrics of a match: time spent by the players, games per second and memory allocated per game.
+ *
+ *  Allocation is measured only if the JVM supports measuring the memory allocated by a thread
+ *  (com.sun.management.ThreadMXBean, e.g. HotSpot). It includes everything allocated while the game was played,
+ *  i.e. by the players as well as by the game itself and the reporting. Moves executed in other threads (under
+ *  a time control) are measured in those threads and added to the total, see moveStarted and moveFinished.
+ */
+public class MatchMetrics {
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = getAllocationBean();
+
+    private final PlayerMetrics player1 = new PlayerMetrics();
+    private final PlayerMetrics player2 = new PlayerMetrics();
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    private volatile long startTime;
+    private volatile long endTime;
+
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+                if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                    return sunBean;
+                }
+            }
+        } catch (LinkageError | UnsupportedOperationException e) {
+            // com.sun.management is not available on this JVM
+        }
+        return null;
+    }
+
+    public PlayerMetrics getPlayer1() {
+        return player1;
+    }
+
+    public PlayerMetrics getPlayer2() {
+        return player2;
+    }
+
+    public void matchStarted() {
+        startTime = System.nanoTime();
+    }
+
+    public void matchFinished() {
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * To be called in the thread that plays the game, before the game starts.
+     * @return Value to be passed to gameFinished.
+     */
+    public long gameStarted() {
+        return getAllocatedBytes();
+    }
+
+    /**
+     * To be called in the same thread as gameStarted, after the game is over.
+     */
+    public void gameFinished(long allocatedAtStart) {
+        games.increment();
+        if (allocatedAtStart >= 0) {
+            allocatedBytes.add(getAllocatedBytes() - allocatedAtStart);
+        }
+    }
+
+    /**
+     * To be called in a thread that executes a player's move outside the thread playing the game (e.g. under
+     * a time control), before the move starts.
+     * @return Value to be passed to moveFinished.
+     */
+    public long moveStarted() {
+        return getAllocatedBytes();
+    }
+
+    /**
+     * To be called in the same thread as moveStarted, after the move returns. Must be called before the game
+     * is finished, so that the memory allocated by the move is accounted for in the game.
+     */
+    public void moveFinished(long allocatedAtStart) {
+        if (allocatedAtStart >= 0) {
+            allocatedBytes.add(getAllocatedBytes() - allocatedAtStart);
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        return ALLOCATION_BEAN != null ? ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    public static boolean isAllocationMeasured() {
+        return ALLOCATION_BEAN != null;
+    }
+
+    public long getGames() {
+        return games.sum();
+    }
+
+    /**
+     * @return Duration of the match in nanoseconds (so far, if it is still running).
+     */
+    public long getDuration() {
+        long end = endTime != 0 ? endTime : System.nanoTime();
+        return startTime != 0 ? end - startTime : 0;
+    }
+
+    public double getGamesPerSecond() {
+        long duration = getDuration();
+        return duration > 0 ? getGames() * 1e9 / duration : 0;
+    }
+
+    /**
+     * @return Average number of bytes allocated per game, or -1 if allocation is not measured.
+     */
+    public long getAllocatedBytesPerGame() {
+        long gameCount = getGames();
+        if (!isAllocationMeasured()) {
+            return -1;
+        } else {
+            return gameCount > 0 ? allocatedBytes.sum() / gameCount : 0;
+        }
+    }
+
+    /**
+     * @return Number of games, allocated bytes and the players' metrics as whitespace-separated tokens.
+     * Used to send the metrics of a part of a match played in another process, see addEncoded.
+     * The duration is not included; it is measured where the match is run.
+     */
+    public String encode() {
+        return getGames() + " " + allocatedBytes.sum() + " " + player1.encode() + " " + player2.encode();
+    }
+
+    /**
+     * Adds metrics encoded by encode() to these.
+     */
+    public void addEncoded(String encoded) {
+        String[] tokens = encoded.trim().split("\\s+");
+        if (tokens.length != 6) {
+            throw new IllegalArgumentException("Illegal encoded match metrics: " + encoded);
+        }
+        try {
+            games.add(Long.parseLong(tokens[0]));
+            allocatedBytes.add(Long.parseLong(tokens[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Illegal encoded match metrics: " + encoded, e);
+        }
+        player1.addEncoded(tokens[2] + " " + tokens[3]);
+        player2.addEncoded(tokens[4] + " " + tokens[5]);
+    }
+
+    /**
+     * @return Metrics in human-readable form, player names are given by the caller.
+     */
+    public String getSummary(String name1, String name2) {
+        long perGame = getAllocatedBytesPerGame();
+        return "Metrics: " + getGames() + " games in " + getDuration() / 1000000 + " ms (" +
+                String.format("%.0f", getGamesPerSecond()) + " games/s), " +
+                (perGame >= 0 ? perGame + " bytes allocated per game" : "allocation not measured") + "\n" +
+                "  " + name1 + ": " + player1.getSummary() + "\n" +
+                "  " + name2 + ": " + player2.getSummary();
+    }
+}
@@ -0,0 +1,59 @@
+package com.mederly.t3arena.metrics;
+
+/**
+ *  Time spent by a player (or by all instances of a player in a parallel match) in its methods called by the game.
+ */
+public class PlayerMetrics {
+
+    private final LatencyHistogram moves = new LatencyHistogram();
+
+    private final LatencyHistogram afterGame = new LatencyHistogram();
+
+    /**
+     * Records the duration of a single Player.move() call.
+     */
+    public void recordMove(long nanos) {
+        moves.record(nanos);
+    }
+
+    /**
+     * Records the duration of a single Player.afterGame() call.
+     */
+    public void recordAfterGame(long nanos) {
+        afterGame.record(nanos);
+    }
+
+    public LatencyHistogram getMoves() {
+        return moves;
+    }
+
+    public LatencyHistogram getAfterGame() {
+        return afterGame;
+    }
+
+    /**
+     * @return The metrics as two whitespace-separated tokens, see LatencyHistogram.encode.
+     */
+    public String encode() {
+        return moves.encode() + " " + afterGame.encode();
+    }
+
+    /**
+     * Adds metrics encoded by encode() (e.g. ones recorded in another process) to these.
+     */
+    public void addEncoded(String encoded) {
+        String[] tokens = encoded.trim().split("\\s+");
+        if (tokens.length != 2) {
+            throw new IllegalArgumentException("Illegal encoded player metrics: " + encoded);
+        }
+        moves.addEncoded(tokens[0]);
+        afterGame.addEncoded(tokens[1]);
+    }
+
+    /**
+     * @return E.g. "move p50 1.2 us, p99 15.0 us, max 230.4 us (9000 moves); afterGame p50 0.1 us, ..."
+     */
+    public String getSummary() {
+        return "move " + moves.getSummary() + " (" + moves.getCount() + " moves); afterGame " + afterGame.getSummary();
+    }
+}
@@ -0,0 +1,33 @@
+package com.mederly.t3arena.players;
+
+import java.util.List;
+
+/**
+ * Skeleton of a player selecting its moves from a bit mask of available fields, i.e. with no allocation.
+ * Players that care about performance should extend this class rather than PlayerBase directly.
+ */
+public abstract class FieldMaskPlayerBase extends PlayerBase {
+
+    protected FieldMaskPlayerBase(String name) {
+        super(name);
+    }
+
+    /**
+     * Called with a (non-empty) mask of fields from which the player has to select one. Field #n is present
+     * if bit (n-1) is set, see Board.getFreeFieldsMask().
+     */
+    @Override
+    protected abstract int selectMyMove(int freeFields);
+
+    /**
+     * Not used by PlayerBase for these players; provided for completeness.
+     */
+    @Override
+    protected final int selectMyMove(List<Integer> freeFields) {
+        int mask = 0;
+        for (int field : freeFields) {
+            mask |= 1 << (field - 1);
+        }
+        return selectMyMove(mask);
+    }
+}
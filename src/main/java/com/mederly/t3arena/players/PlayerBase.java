@@ -1,13 +1,19 @@
 package com.mederly.t3arena.players;
 
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.BoardGeometry;
+import com.mederly.t3arena.GameClock;
 import com.mederly.t3arena.GameState;
 import com.mederly.t3arena.Player;
+import com.mederly.t3arena.players.tablebase.Tablebase;
 
 import java.util.List;
 
 /**
  * Skeleton of a player: provides a board to see the game state and registers opponent's moves on it.
- * Then offers an implementor of a player available fields to select from.
+ * Then offers an implementor of a player available fields to select from as a list. Players that select
+ * their moves from a bit mask (with no allocation) should extend FieldMaskPlayerBase instead.
+ * Optionally, a tablebase is consulted first.
  */
 public abstract class PlayerBase implements Player {
 
@@ -26,6 +32,16 @@ public abstract class PlayerBase implements Player {
      */
     protected byte side;
 
+    /**
+     * How much time we have left.
+     */
+    protected GameClock clock = GameClock.UNLIMITED;
+
+    /**
+     * Precomputed best moves, consulted before selectMyMove is called. Null if there are none.
+     */
+    protected Tablebase tablebase;
+
     protected PlayerBase(String name) {
         this.name = name;
     }
@@ -35,7 +51,14 @@ public abstract class PlayerBase implements Player {
     }
 
     public void beforeGame(byte side) {
-        gameState = new GameState();
+        beforeGame(side, BoardGeometry.STANDARD);
+    }
+
+    @Override
+    public void beforeGame(byte side, BoardGeometry geometry) {
+        synchronized (this) {
+            gameState = new GameState(geometry);
+        }
         this.side = side;
     }
 
@@ -49,16 +72,63 @@ public abstract class PlayerBase implements Player {
     }
 
     public int move() {
-        List<Integer> freeFields = gameState.getBoard().getFreeFields();
-        if (freeFields.isEmpty()) {
+        GameState state = gameState;
+        int freeFields = state.getBoard().getFreeFieldsMask();
+        if (freeFields == 0) {
             throw new IllegalStateException("Why are you calling me? There's no field to take.");
         } else {
-            int myMove = selectMyMove(freeFields);
-            gameState.registerMove(myMove);
+            int bestMoves = tablebase != null ? tablebase.getBestMoves(state.getBoard()) : 0;
+            int myMove = bestMoves != 0 ? selectTablebaseMove(bestMoves) : selectMyMove(freeFields);
+            synchronized (this) {
+                if (state == gameState) {       // otherwise the move was abandoned and the state replaced meanwhile
+                    state.registerMove(myMove);
+                }
+            }
             return myMove;
         }
     }
 
+    /**
+     * Replaces our game state by the actual one.
+     */
+    @Override
+    public void onMoveSubstituted(GameState gameState, int move) {
+        synchronized (this) {
+            this.gameState = new GameState(gameState);
+        }
+    }
+
+    @Override
+    public void setClock(GameClock clock) {
+        this.clock = clock;
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets the tablebase to be consulted before the player's own logic: if the current position is there,
+     * the move is selected from the best moves stored (see selectTablebaseMove) and selectMyMove is not called.
+     * A tablebase is read-only, so it can be shared by many players.
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Called with a (non-empty) mask of best moves found in the tablebase. The default implementation selects
+     * one of them randomly.
+     */
+    protected int selectTablebaseMove(int bestMoves) {
+        int selected = (int) (Math.random() * Board.getFieldCount(bestMoves));
+        return Board.getNthField(bestMoves, selected);
+    }
+
     @Override
     public String getName() {
         return name;
@@ -69,6 +139,16 @@ public abstract class PlayerBase implements Player {
         return getName();
     }
 
+    /**
+     * Called with a (non-empty) mask of fields from which the player has to select one. Field #n is present
+     * if bit (n-1) is set, see Board.getFreeFieldsMask().
+     *
+     * Converts the mask to a list and calls selectMyMove(List). Overridden by FieldMaskPlayerBase.
+     */
+    protected int selectMyMove(int freeFields) {
+        return selectMyMove(Board.toFieldList(freeFields));
+    }
+
     /**
      * Called with a (non-empty) list of fields from which the player has to select one.
      */
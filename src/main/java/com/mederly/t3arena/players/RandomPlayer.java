@@ -1,19 +1,19 @@
 package com.mederly.t3arena.players;
 
-import java.util.List;
+import com.mederly.t3arena.Board;
 
 /**
  *  A player that plays randomly.
  */
-public class RandomPlayer extends PlayerBase {
+public class RandomPlayer extends FieldMaskPlayerBase {
 
     public RandomPlayer(String name) {
         super(name);
     }
 
     @Override
-    protected int selectMyMove(List<Integer> freeFields) {
-        int selected = (int) (Math.random() * freeFields.size());
-        return freeFields.get(selected);
+    protected int selectMyMove(int freeFields) {
+        int selected = (int) (Math.random() * Board.getFieldCount(freeFields));
+        return Board.getNthField(freeFields, selected);
     }
 }
@@ -1,18 +1,18 @@
 package com.mederly.t3arena.players;
 
-import java.util.List;
+import com.mederly.t3arena.Board;
 
 /**
  *  A player that always selects the first available field.
  */
-public class SequentialPlayer extends PlayerBase {
+public class SequentialPlayer extends FieldMaskPlayerBase {
 
     public SequentialPlayer(String name) {
         super(name);
     }
 
     @Override
-    protected int selectMyMove(List<Integer> freeFields) {
-        return freeFields.get(0);
+    protected int selectMyMove(int freeFields) {
+        return Board.getFirstField(freeFields);
     }
 }
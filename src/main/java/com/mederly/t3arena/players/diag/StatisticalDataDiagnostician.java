@@ -1,143 +1,355 @@
 package com.mederly.t3arena.players.diag;
 
 import com.mederly.t3arena.Board;
-import com.mederly.t3arena.GameState;
-import com.mederly.t3arena.players.minimax.MinimaxStateComputer;
-import com.mederly.t3arena.players.minimax.StateNode;
+import com.mederly.t3arena.players.minimax.MinimaxTable;
 import com.mederly.t3arena.players.stat.*;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static com.mederly.t3arena.Board.PLAYER_O;
 import static com.mederly.t3arena.Board.PLAYER_X;
 
 /**
  * A class used to diagnose the correctness of a statistical data.
+ *
+ * Positions are taken from the minimax table. They are processed in chunks: boards of a chunk can be checked
+ * in parallel, and the results are written (in the original order) through a buffered writer, so the report
+ * does not have to be kept in memory. The report can be written either as text or as CSV tables.
  */
 public class StatisticalDataDiagnostician {
 
-    public void diagnose(DataSource dataSource, boolean dumpAllStates) {
+    /**
+     * Number of boards processed (in parallel) before their results are written.
+     */
+    private static final int CHUNK_SIZE = 1024;
 
-        System.out.println(" *** Diagnosing " + dataSource + " ***");
+    private static final String CSV_STATES_HEADER = "index,board,num,turn,valX,valO,statWinX,statWinO,statTie,samples,comment";
+    private static final String CSV_WARNINGS_HEADER = "board,position,move,side,resultingBoard,recommendedMoves,statEvaluation,samples";
 
-        long start = System.currentTimeMillis();
-        StateNode stateTreeRoot = new StateNode(new GameState());
-        stateTreeRoot.evaluate();
-        System.out.println("State tree computed in " + (System.currentTimeMillis() - start) + " ms");
+    /**
+     * Where the text report goes (null means System.out).
+     */
+    private final Writer output;
+
+    /**
+     * Whether boards are checked in parallel (in the common fork-join pool).
+     */
+    private final boolean parallel;
+
+    /**
+     * Numbers found when diagnosing the data source.
+     */
+    public static class Result {
+
+        private int boards;
+        private int noSamplesBoards;
+        private int warnings;
+        private int warningsWithSamples;
+
+        public int getBoards() {
+            return boards;
+        }
+
+        public int getNoSamplesBoards() {
+            return noSamplesBoards;
+        }
+
+        public int getWarnings() {
+            return warnings;
+        }
+
+        public int getWarningsWithSamples() {
+            return warningsWithSamples;
+        }
+    }
+
+    /**
+     * Diagnostician printing the report to the console, checking the boards sequentially.
+     */
+    public StatisticalDataDiagnostician() {
+        this(null, false);
+    }
+
+    /**
+     * @param output Where to write the text report (null means System.out). It is not closed, only flushed.
+     * @param parallel Whether to check the boards in parallel.
+     */
+    public StatisticalDataDiagnostician(Writer output, boolean parallel) {
+        this.output = output;
+        this.parallel = parallel;
+    }
 
-        Map<Board, StateNode> uniqueMinimaxStates = MinimaxStateComputer.getUniqueStates(stateTreeRoot);
+    public Result diagnose(DataSource dataSource, boolean dumpAllStates) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(output != null ? output : new OutputStreamWriter(System.out)));
+        Result result = new Result();
+
+        out.println(" *** Diagnosing " + dataSource + " ***");
+
+        long start = System.currentTimeMillis();
+        MinimaxTable minimaxTable = MinimaxTable.getInstance();
+        List<Board> reachableBoards = minimaxTable.getReachableBoards();
+        out.println("Minimax table obtained in " + (System.currentTimeMillis() - start) + " ms");
 
         if (dumpAllStates) {
-            dumpStates(uniqueMinimaxStates.values(), dataSource);
+            dumpStates(reachableBoards, minimaxTable, dataSource, out, result);
         }
 
-        checkAllStates(uniqueMinimaxStates.values(), dataSource, new NotLoseRatioSelector());
+        checkAllStates(reachableBoards, minimaxTable, dataSource, new NotLoseRatioSelector(), out, result);
+        out.flush();
+        return result;
     }
 
-    private void dumpStates(Collection<StateNode> allStates, DataSource dataSource) {
-        System.out.println();
-        System.out.println(String.format("%7s\t%9s\t%9s\t%4s\t%4s\t%4s\t%10s\t%10s\t%10s\t%10s\t%s", "#", "Board", "Num", "Turn", "ValX", "ValO", "StatWinX", "StatWinO", "StatTie", "Samples", "Comment"));
-        Iterator<StateNode> iterator = allStates.iterator();
-        int noSamplesBoards = 0;
-        for (int i = 0; i < allStates.size(); i++) {
-            StateNode state = iterator.next();
-            Board board = state.getGameState().getBoard();
-            Statistics statistics = dataSource.getStatistics(board);
-            if (statistics == null) {
-                System.out.println("Warning: no statistics for " + board);
-                statistics = new Statistics();
+    /**
+     * Writes the diagnostics as CSV tables: one for all the states (if statesOutput is not null), one for warnings.
+     * The writers are not closed, only flushed.
+     */
+    public Result diagnoseToCsv(DataSource dataSource, Writer statesOutput, Writer warningsOutput) {
+        MinimaxTable minimaxTable = MinimaxTable.getInstance();
+        List<Board> reachableBoards = minimaxTable.getReachableBoards();
+        Result result = new Result();
+        try {
+            if (statesOutput != null) {
+                BufferedWriter states = new BufferedWriter(statesOutput);
+                states.write(CSV_STATES_HEADER);
+                states.newLine();
+                result.boards = reachableBoards.size();
+                forEachInOrder(reachableBoards,
+                        (index, board) -> describeState(index, board, minimaxTable, dataSource, true),
+                        row -> {
+                            if (row.noSamples) {
+                                result.noSamplesBoards++;
+                            }
+                            write(states, row.line);
+                        });
+                states.flush();
             }
+            BufferedWriter warnings = new BufferedWriter(warningsOutput);
+            warnings.write(CSV_WARNINGS_HEADER);
+            warnings.newLine();
+            StatisticsInterpreter interpreter = new NotLoseRatioSelector();
+            forEachInOrder(reachableBoards,
+                    (index, board) -> checkState(board, minimaxTable, dataSource, interpreter, true),
+                    check -> addCheckResult(check, result, line -> write(warnings, line)));
+            warnings.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private static void write(BufferedWriter writer, String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            // minimax values
-            int valX = state.getValueForX();
-            int valO = state.getValueForO();
-
-            // statistics values
-            int samples = statistics.getSamples();
-            double winX = statistics.getWinRatio(PLAYER_X);
-            double winO = statistics.getWinRatio(PLAYER_O);
-            double tie = 1.0 - winX - winO;
-
-            String comment;
-
-            if (samples == 0) {
-                comment = "No samples";
-                noSamplesBoards++;
-            } else if (valX > 0 && winO > 0.5) {
-                comment = "Winning for X but statistics show winO = " + winO;
-            } else if (valO > 0 && winX > 0.5) {
-                comment = "Winning for O but statistics show winX = " + winX;
+    private interface BoardProcessor<T> {
+        T process(int index, Board board);
+    }
+
+    /**
+     * Processes the boards (in parallel, if configured so) and passes the results to the consumer in the original
+     * order of the boards. Only the results of a single chunk are kept in memory at once.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void forEachInOrder(List<Board> boards, BoardProcessor<T> processor, Consumer<T> consumer) {
+        for (int from = 0; from < boards.size(); from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, boards.size());
+            if (parallel) {
+                Object[] results = IntStream.range(from, to).parallel()
+                        .mapToObj(i -> processor.process(i, boards.get(i)))
+                        .toArray();
+                for (Object result : results) {
+                    consumer.accept((T) result);
+                }
             } else {
-                comment = "";
+                for (int i = from; i < to; i++) {
+                    consumer.accept(processor.process(i, boards.get(i)));
+                }
             }
-
-            System.out.println(String.format("%7s\t%9s\t%9d\t%4d\t%4d\t%4d\t%10.3f\t%10.3f\t%10.3f\t%10d\t%s", i+1, board.getStringRepresentation(),
-                    board.getNumericRepresentation(), state.getGameState().getTurn(), valX,
-                    valO, winX, winO, tie, samples, comment));
         }
+    }
 
-        System.out.println("Boards: " + allStates.size() + "; no samples boards: " + noSamplesBoards);
+    private static class StateRow {
+        private String line;
+        private boolean noSamples;
     }
 
-    private void checkAllStates(Collection<StateNode> allStates, DataSource statisticsData,
-            StatisticsInterpreter interpreter) {
-        System.out.println("\nChecking all states for statistics vs. minimax consistency using " + interpreter.getClass().getSimpleName() + "\n");
-
-        int warnings = 0;
-        int warningsWithSamples = 0;
-
-        for (StateNode state : allStates) {
-
-            byte side = state.getGameState().getTurn();
-            StateNode[] children = state.getChildren();
-
-            double maxValueStat = Double.MIN_VALUE;
-            List<Integer> bestMovesStat = new ArrayList<>();
-            List<Integer> samplesList = new ArrayList<>();
-
-            for (int i = 0; i < children.length; i++) {
-                StateNode child = children[i];
-                if (child != null) {
-                    Statistics statistics = statisticsData.getStatistics(child.getGameState().getBoard());
-                    double value = interpreter.getValue(side, statistics);
-                    // We should do some fractional arithmetic here. Comparing doubles for equality is a bit unreliable.
-                    if (bestMovesStat.isEmpty() || value > maxValueStat) {
-                        bestMovesStat.clear();
-                        bestMovesStat.add(i+1);
-                        samplesList.clear();
-                        samplesList.add(statistics.getSamples());
-                        maxValueStat = value;
-                    } else if (value == maxValueStat) {
-                        bestMovesStat.add(i+1);
-                        samplesList.add(statistics.getSamples());
+    private void dumpStates(List<Board> allBoards, MinimaxTable minimaxTable, DataSource dataSource, PrintWriter out,
+            Result result) {
+        out.println();
+        out.println(String.format("%7s\t%9s\t%9s\t%4s\t%4s\t%4s\t%10s\t%10s\t%10s\t%10s\t%s", "#", "Board", "Num", "Turn", "ValX", "ValO", "StatWinX", "StatWinO", "StatTie", "Samples", "Comment"));
+        result.boards = allBoards.size();
+        forEachInOrder(allBoards,
+                (index, board) -> describeState(index, board, minimaxTable, dataSource, false),
+                row -> {
+                    if (row.noSamples) {
+                        result.noSamplesBoards++;
                     }
-                }
+                    out.println(row.line);
+                });
+
+        out.println("Boards: " + allBoards.size() + "; no samples boards: " + result.noSamplesBoards);
+    }
+
+    private StateRow describeState(int index, Board board, MinimaxTable minimaxTable, DataSource dataSource, boolean csv) {
+        StateRow row = new StateRow();
+        Statistics statistics = dataSource.getStatistics(board);
+        String noStatisticsWarning = null;
+        if (statistics == null) {
+            noStatisticsWarning = "Warning: no statistics for " + board;
+            statistics = new Statistics();
+        }
+
+        // minimax values
+        int valX = minimaxTable.getValueForX(board);
+        int valO = minimaxTable.getValueForO(board);
+
+        // statistics values
+        int samples = statistics.getSamples();
+        double winX = statistics.getWinRatio(PLAYER_X);
+        double winO = statistics.getWinRatio(PLAYER_O);
+        double tie = 1.0 - winX - winO;
+
+        String comment;
+
+        if (samples == 0) {
+            comment = "No samples";
+            row.noSamples = true;
+        } else if (valX > 0 && winO > 0.5) {
+            comment = "Winning for X but statistics show winO = " + winO;
+        } else if (valO > 0 && winX > 0.5) {
+            comment = "Winning for O but statistics show winX = " + winX;
+        } else {
+            comment = "";
+        }
+
+        if (csv) {
+            row.line = (index + 1) + "," + board.getStringRepresentation() + "," + board.getNumericRepresentation() + "," +
+                    board.getPlayerOnTurn() + "," + valX + "," + valO + "," + winX + "," + winO + "," + tie + "," +
+                    samples + "," + comment;
+        } else {
+            row.line = String.format("%7s\t%9s\t%9d\t%4d\t%4d\t%4d\t%10.3f\t%10.3f\t%10.3f\t%10d\t%s", index+1, board.getStringRepresentation(),
+                    board.getNumericRepresentation(), board.getPlayerOnTurn(), valX,
+                    valO, winX, winO, tie, samples, comment);
+            if (noStatisticsWarning != null) {
+                row.line = noStatisticsWarning + System.lineSeparator() + row.line;
             }
+        }
+        return row;
+    }
 
-            // problem is if there's a losing move among ones selected by the statistics
-
-            int currentValue = side == PLAYER_X ? state.getValueForX() : state.getValueForO();
-            if (currentValue >= 0) {
-                for (int i = 0; i < bestMovesStat.size(); i++) {
-                    int bestMoveStat = bestMovesStat.get(i);
-                    int samples = samplesList.get(i);
-                    StateNode child = children[bestMoveStat - 1];
-                    int newValue = side == PLAYER_X ? child.getValueForX() : child.getValueForO();
-                    if (newValue < 0) {
-                        System.out.println(String.format(
-                                "BEWARE: in %7s position %s a recommended move of %d leads to losing position for %d: %s (all recommended moves: %s, stat evaluation = %.3f); samples = %d",
-                                (currentValue > 0 ? "winning" : "tie"),
-                                state.getGameState().getBoard(), bestMoveStat, side, child.getGameState().getBoard(),
-                                bestMovesStat, maxValueStat, samples));
-                        warnings++;
-                        if (samples > 0) {
-                            warningsWithSamples++;
+    /**
+     * Warnings found for a single board (if any).
+     */
+    private static class CheckResult {
+        private final List<String> lines = new ArrayList<>();
+        private int warnings;
+        private int warningsWithSamples;
+    }
+
+    private void checkAllStates(List<Board> allBoards, MinimaxTable minimaxTable, DataSource statisticsData,
+            StatisticsInterpreter interpreter, PrintWriter out, Result result) {
+        out.println("\nChecking all states for statistics vs. minimax consistency using " + interpreter.getClass().getSimpleName() + "\n");
+
+        forEachInOrder(allBoards,
+                (index, board) -> checkState(board, minimaxTable, statisticsData, interpreter, false),
+                check -> addCheckResult(check, result, out::println));
+
+        out.println("\nWarnings: " + result.warnings);
+        out.println("Warnings when there are some samples: " + result.warningsWithSamples);
+    }
+
+    private static void addCheckResult(CheckResult check, Result result, Consumer<String> output) {
+        if (check != null) {
+            check.lines.forEach(output);
+            result.warnings += check.warnings;
+            result.warningsWithSamples += check.warningsWithSamples;
+        }
+    }
+
+    /**
+     * @return Warnings for the board, or null if there are none.
+     */
+    private CheckResult checkState(Board board, MinimaxTable minimaxTable, DataSource statisticsData,
+            StatisticsInterpreter interpreter, boolean csv) {
+
+        if (board.getWinner() != null) {
+            return null;       // the game is over, so there are no moves to check
+        }
+
+        byte side = board.getPlayerOnTurn();
+
+        double maxValueStat = Double.MIN_VALUE;
+        List<Integer> bestMovesStat = new ArrayList<>();
+        List<Integer> samplesList = new ArrayList<>();
+
+        Board child = new Board(board);
+        for (int fields = board.getFreeFieldsMask(); fields != 0; fields &= fields - 1) {
+            int field = Board.getFirstField(fields);
+            child.registerMove(side, field);
+            Statistics statistics = statisticsData.getStatistics(child);
+            child.unregisterMove(field);
+            double value = interpreter.getValue(side, statistics);
+            // We should do some fractional arithmetic here. Comparing doubles for equality is a bit unreliable.
+            if (bestMovesStat.isEmpty() || value > maxValueStat) {
+                bestMovesStat.clear();
+                bestMovesStat.add(field);
+                samplesList.clear();
+                samplesList.add(statistics.getSamples());
+                maxValueStat = value;
+            } else if (value == maxValueStat) {
+                bestMovesStat.add(field);
+                samplesList.add(statistics.getSamples());
+            }
+        }
+
+        // problem is if there's a losing move among ones selected by the statistics
+
+        CheckResult check = null;
+        int currentValue = minimaxTable.getValue(board, side);
+        if (currentValue >= 0) {
+            for (int i = 0; i < bestMovesStat.size(); i++) {
+                int bestMoveStat = bestMovesStat.get(i);
+                int samples = samplesList.get(i);
+                child.registerMove(side, bestMoveStat);
+                int newValue = minimaxTable.getValue(child, side);
+                if (newValue < 0) {
+                    if (check == null) {
+                        check = new CheckResult();
+                    }
+                    String kind = currentValue > 0 ? "winning" : "tie";
+                    if (csv) {
+                        StringBuilder moves = new StringBuilder();
+                        for (int move : bestMovesStat) {
+                            moves.append(moves.length() > 0 ? " " : "").append(move);
                         }
+                        check.lines.add(board + "," + kind + "," + bestMoveStat + "," + side + "," + child + "," +
+                                moves + "," + maxValueStat + "," + samples);
+                    } else {
+                        check.lines.add(String.format(
+                                "BEWARE: in %7s position %s a recommended move of %d leads to losing position for %d: %s (all recommended moves: %s, stat evaluation = %.3f); samples = %d",
+                                kind, board, bestMoveStat, side, child, bestMovesStat, maxValueStat, samples));
+                    }
+                    check.warnings++;
+                    if (samples > 0) {
+                        check.warningsWithSamples++;
                     }
                 }
+                child.unregisterMove(bestMoveStat);
             }
         }
-        System.out.println("\nWarnings: " + warnings);
-        System.out.println("Warnings when there are some samples: " + warningsWithSamples);
+        return check;
     }
 }
@@ -0,0 +1,68 @@
+package com.mederly.t3arena.players.mcts;
+
+import com.mederly.t3arena.Board;
+
+/**
+ *  A node of the Monte Carlo search tree, i.e. a position reached by a sequence of moves from the root.
+ *  The position itself is not stored; it is reconstructed by playing the moves on the path from the root.
+ */
+class MctsNode {
+
+    /**
+     * Null for the root. Cleared when the node becomes the root, so that the old tree can be collected.
+     */
+    MctsNode parent;
+
+    /**
+     * The move leading to this node (0 for the root).
+     */
+    final int move;
+
+    /**
+     * Who made the move leading to this node. The score is counted from this player's point of view.
+     */
+    final byte player;
+
+    /**
+     * Fields not yet expanded into child nodes (bit mask as in Board.getFreeFieldsMask). Zero for terminal positions.
+     */
+    int untriedMoves;
+
+    MctsNode[] children;
+    int childCount;
+
+    int visits;
+
+    /**
+     * Sum of playout results: 1 for a win of the player, 0.5 for a tie, 0 for a loss.
+     */
+    double score;
+
+    MctsNode(MctsNode parent, int move, byte player, Board board) {
+        this.parent = parent;
+        this.move = move;
+        this.player = player;
+        this.untriedMoves = board.getWinner() == null ? board.getFreeFieldsMask() : 0;
+        this.children = new MctsNode[Board.getFieldCount(untriedMoves)];
+    }
+
+    boolean isFullyExpanded() {
+        return untriedMoves == 0;
+    }
+
+    MctsNode addChild(int move, byte player, Board board) {
+        untriedMoves &= ~(1 << (move - 1));
+        MctsNode child = new MctsNode(this, move, player, board);
+        children[childCount++] = child;
+        return child;
+    }
+
+    MctsNode getChild(int move) {
+        for (int i = 0; i < childCount; i++) {
+            if (children[i].move == move) {
+                return children[i];
+            }
+        }
+        return null;
+    }
+}
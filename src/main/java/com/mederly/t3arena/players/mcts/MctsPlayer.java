@@ -0,0 +1,162 @@
+package com.mederly.t3arena.players.mcts;
+
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.BoardGeometry;
+import com.mederly.t3arena.GameState;
+import com.mederly.t3arena.players.FieldMaskPlayerBase;
+
+import java.util.stream.IntStream;
+
+/**
+ *  A player using Monte Carlo tree search. The cost of each move is limited by a number of iterations,
+ *  by a time budget, or by both. Boards of any geometry are supported.
+ *
+ *  The search tree is kept between moves: after our move and after the opponent's move the root is moved
+ *  to the respective child, so the iterations spent on that subtree are not lost.
+ *
+ *  With more than one tree, the trees are searched in parallel (root parallelization) and the visit counts
+ *  of the root moves are added up. Parallel searches run in the fork-join pool the player is called from,
+ *  or in the common pool.
+ */
+public class MctsPlayer extends FieldMaskPlayerBase {
+
+    /**
+     * Maximum number of iterations per move and per tree (0 = no limit).
+     */
+    private final int iterationsPerMove;
+
+    /**
+     * Maximum time per move in milliseconds (0 = no limit).
+     */
+    private final long millisPerMove;
+
+    private final MctsSearcher[] searchers;
+
+    /**
+     * Number of iterations (summed over all trees) run when selecting the last move.
+     */
+    private long lastMoveIterations;
+
+    /**
+     * Number of iterations (summed over all trees) run since the player was created.
+     */
+    private long totalIterations;
+
+    public MctsPlayer(String name, int iterationsPerMove) {
+        this(name, iterationsPerMove, 0, MctsSearcher.Playout.RANDOM, 1);
+    }
+
+    /**
+     * @param iterationsPerMove Maximum number of iterations per move and per tree (0 = no limit).
+     * @param millisPerMove Maximum time per move in milliseconds (0 = no limit).
+     * @param trees Number of trees to be searched in parallel.
+     */
+    public MctsPlayer(String name, int iterationsPerMove, long millisPerMove, MctsSearcher.Playout playout, int trees) {
+        super(name);
+        if (iterationsPerMove < 0 || millisPerMove < 0 || iterationsPerMove == 0 && millisPerMove == 0) {
+            throw new IllegalArgumentException("Illegal budget: " + iterationsPerMove + " iterations, " + millisPerMove + " ms");
+        }
+        if (trees < 1) {
+            throw new IllegalArgumentException("Illegal number of trees: " + trees);
+        }
+        this.iterationsPerMove = iterationsPerMove;
+        this.millisPerMove = millisPerMove;
+        this.searchers = new MctsSearcher[trees];
+        for (int i = 0; i < trees; i++) {
+            searchers[i] = new MctsSearcher(playout);
+        }
+    }
+
+    @Override
+    public void beforeGame(byte side, BoardGeometry geometry) {
+        super.beforeGame(side, geometry);
+        for (MctsSearcher searcher : searchers) {
+            searcher.reset(gameState.getBoard());
+        }
+    }
+
+    @Override
+    public void onOpponentMove(int field) {
+        super.onOpponentMove(field);
+        for (MctsSearcher searcher : searchers) {
+            searcher.advance(field);
+        }
+    }
+
+    @Override
+    public void onMoveSubstituted(GameState gameState, int move) {
+        super.onMoveSubstituted(gameState, move);
+        for (MctsSearcher searcher : searchers) {
+            searcher.reset(this.gameState.getBoard());
+        }
+    }
+
+    @Override
+    protected int selectMyMove(int freeFields) {
+        long deadline = getDeadline(freeFields);
+        if (searchers.length == 1) {
+            lastMoveIterations = searchers[0].search(iterationsPerMove, deadline);
+        } else {
+            lastMoveIterations = IntStream.range(0, searchers.length).parallel()
+                    .map(i -> searchers[i].search(iterationsPerMove, deadline))
+                    .asLongStream().sum();
+        }
+        totalIterations += lastMoveIterations;
+
+        int[] visitsByField = new int[gameState.getBoard().getGeometry().getFieldCount() + 1];
+        for (MctsSearcher searcher : searchers) {
+            searcher.addRootVisits(visitsByField);
+        }
+        int bestMove = 0;
+        for (int fields = freeFields; fields != 0; fields &= fields - 1) {
+            int field = Board.getFirstField(fields);
+            if (bestMove == 0 || visitsByField[field] > visitsByField[bestMove]) {
+                bestMove = field;
+            }
+        }
+
+        for (MctsSearcher searcher : searchers) {
+            searcher.advance(bestMove);
+        }
+        return bestMove;
+    }
+
+    /**
+     * The search stops after millisPerMove, but also before running out of time given by the clock (if any):
+     * we take 90 % of the time left for the move, and an equal share of the time left for the game.
+     */
+    private long getDeadline(int freeFields) {
+        long now = System.nanoTime();
+        long millis = millisPerMove > 0 ? millisPerMove : Long.MAX_VALUE;
+        long moveMillis = clock.getRemainingMoveMillis();
+        if (moveMillis != Long.MAX_VALUE) {
+            millis = Math.min(millis, moveMillis * 9 / 10);
+        }
+        long gameMillis = clock.getRemainingGameMillis();
+        if (gameMillis != Long.MAX_VALUE) {
+            int myMovesLeft = (Board.getFieldCount(freeFields) + 1) / 2;
+            millis = Math.min(millis, gameMillis * 9 / 10 / myMovesLeft);
+        }
+        return millis != Long.MAX_VALUE ? now + Math.max(millis, 0) * 1_000_000 : Long.MAX_VALUE;
+    }
+
+    /**
+     * The search trees have to follow also moves taken from the tablebase.
+     */
+    @Override
+    protected int selectTablebaseMove(int bestMoves) {
+        int move = super.selectTablebaseMove(bestMoves);
+        for (MctsSearcher searcher : searchers) {
+            searcher.advance(move);
+        }
+        return move;
+    }
+
+    public long getLastMoveIterations() {
+        return lastMoveIterations;
+    }
+
+    public long getTotalIterations() {
+        return totalIterations;
+    }
+}
@@ -0,0 +1,207 @@
+package com.mederly.t3arena.players.mcts;
+
+import com.mederly.t3arena.Board;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.mederly.t3arena.Board.PLAYER_O;
+import static com.mederly.t3arena.Board.PLAYER_X;
+
+/**
+ *  Monte Carlo tree search (UCT) over a single tree. The tree is kept between searches, so that it can be reused
+ *  after moves are made (see advance). Works on boards of any geometry.
+ *
+ *  Not thread-safe: for parallel search, use one searcher per thread (root parallelization).
+ */
+public class MctsSearcher {
+
+    /**
+     * How the games are finished after leaving the tree.
+     */
+    public enum Playout {
+
+        /**
+         * Uniformly random moves.
+         */
+        RANDOM,
+
+        /**
+         * Winning move if there is one, otherwise a move blocking the opponent's immediate win,
+         * otherwise a random move.
+         */
+        WIN_OR_BLOCK
+    }
+
+    /**
+     * UCT exploration constant.
+     */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    private final Playout playout;
+
+    /**
+     * Position at the root of the tree.
+     */
+    private Board rootBoard;
+
+    private MctsNode root;
+
+    /**
+     * Moves on the path from the root to the current node, plus the playout; used to take them back.
+     */
+    private int[] path;
+
+    public MctsSearcher(Playout playout) {
+        this.playout = playout;
+    }
+
+    /**
+     * Starts a new tree at the given position.
+     */
+    public void reset(Board board) {
+        rootBoard = new Board(board);
+        root = new MctsNode(null, 0, getPreviousPlayer(rootBoard), rootBoard);
+        path = new int[Board.getFieldCount(rootBoard.getFreeFieldsMask())];
+    }
+
+    /**
+     * Moves the root along the given move, keeping the subtree that was already searched (if any).
+     */
+    public void advance(int move) {
+        rootBoard.registerMove(rootBoard.getPlayerOnTurn(), move);
+        MctsNode child = root.getChild(move);
+        if (child != null) {
+            child.parent = null;        // the rest of the old tree is not needed anymore
+            root = child;
+        } else {
+            root = new MctsNode(null, move, getPreviousPlayer(rootBoard), rootBoard);
+        }
+    }
+
+    /**
+     * Runs search iterations until either of the limits is reached (at least one iteration is always run).
+     * @param maxIterations Maximum number of iterations (0 = no limit).
+     * @param deadline Value of System.nanoTime() at which the search should stop (Long.MAX_VALUE = no limit).
+     * @return Number of iterations run.
+     */
+    public int search(int maxIterations, long deadline) {
+        int iterations = 0;
+        do {
+            iterate();
+            iterations++;
+        } while ((maxIterations == 0 || iterations < maxIterations) && System.nanoTime() < deadline);
+        return iterations;
+    }
+
+    /**
+     * One iteration: selection, expansion, playout and backpropagation.
+     */
+    private void iterate() {
+        Board board = rootBoard;
+        int depth = 0;
+
+        MctsNode node = root;
+        while (node.isFullyExpanded() && node.childCount > 0) {
+            node = selectChild(node);
+            board.registerMove(node.player, node.move);
+            path[depth++] = node.move;
+        }
+        if (!node.isFullyExpanded()) {
+            int untried = node.untriedMoves;
+            int move = Board.getNthField(untried, ThreadLocalRandom.current().nextInt(Board.getFieldCount(untried)));
+            byte player = board.getPlayerOnTurn();
+            board.registerMove(player, move);
+            path[depth++] = move;
+            node = node.addChild(move, player, board);
+        }
+
+        Integer winner = board.getWinner();
+        while (winner == null) {
+            int move = selectPlayoutMove(board);
+            board.registerMove(board.getPlayerOnTurn(), move);
+            path[depth++] = move;
+            winner = board.getWinner();
+        }
+
+        while (depth > 0) {
+            board.unregisterMove(path[--depth]);
+        }
+
+        for (; node != null; node = node.parent) {
+            node.visits++;
+            if (winner == 0) {
+                node.score += 0.5;
+            } else if (winner == node.player) {
+                node.score += 1;
+            }
+        }
+    }
+
+    private static MctsNode selectChild(MctsNode node) {
+        double logVisits = Math.log(node.visits);
+        MctsNode best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < node.childCount; i++) {
+            MctsNode child = node.children[i];
+            double value = child.score / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+            if (value > bestValue) {
+                best = child;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    private int selectPlayoutMove(Board board) {
+        int freeFields = board.getFreeFieldsMask();
+        if (playout == Playout.WIN_OR_BLOCK) {
+            byte player = board.getPlayerOnTurn();
+            int winning = findWinningMove(board, freeFields, player);
+            if (winning != 0) {
+                return winning;
+            }
+            int blocking = findWinningMove(board, freeFields, player == PLAYER_X ? PLAYER_O : PLAYER_X);
+            if (blocking != 0) {
+                return blocking;
+            }
+        }
+        return Board.getNthField(freeFields, ThreadLocalRandom.current().nextInt(Board.getFieldCount(freeFields)));
+    }
+
+    /**
+     * @return A field that would win the game for the player, or 0 if there is none.
+     */
+    private static int findWinningMove(Board board, int freeFields, byte player) {
+        for (; freeFields != 0; freeFields &= freeFields - 1) {
+            int field = Board.getFirstField(freeFields);
+            board.registerMove(player, field);
+            Integer winner = board.getWinner();
+            board.unregisterMove(field);
+            if (winner != null && winner == player) {
+                return field;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds the number of visits of root moves to the array (indexed by field numbers).
+     */
+    public void addRootVisits(int[] visitsByField) {
+        for (int i = 0; i < root.childCount; i++) {
+            MctsNode child = root.children[i];
+            visitsByField[child.move] += child.visits;
+        }
+    }
+
+    /**
+     * @return Number of iterations that went through the current root (including those from previous searches).
+     */
+    public int getRootVisits() {
+        return root.visits;
+    }
+
+    private static byte getPreviousPlayer(Board board) {
+        return board.getPlayerOnTurn() == PLAYER_X ? PLAYER_O : PLAYER_X;
+    }
+}
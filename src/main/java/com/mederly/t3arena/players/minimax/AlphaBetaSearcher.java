@@ -0,0 +1,142 @@
+package com.mederly.t3arena.players.minimax;
+
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.GameState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *  On-demand minimax search: negamax with alpha-beta pruning, starting from a given position.
+ *  Unlike StateNode or MinimaxTable, nothing is precomputed or stored, so the memory needed is flat.
+ *  Works on boards of any geometry.
+ *
+ *  Values are the same as in StateNode (100 = win, -100 = loss, 0 = tie), only they are always
+ *  given from the point of view of the side on turn. If the search depth is limited, positions
+ *  at the depth limit are evaluated as ties.
+ */
+public class AlphaBetaSearcher {
+
+    private static final int WIN = 100;
+
+    /**
+     * Maximum depth (in plies) of the search.
+     */
+    private final int maxDepth;
+
+    /**
+     * Order in which moves are tried: fields lying on more winning lines first (e.g. center, corners, edges
+     * on the standard board). Good moves tried early mean more cut-offs.
+     */
+    private int[] moveOrder;
+
+    /**
+     * Nodes (positions) visited since the last reset.
+     */
+    private long nodesSearched;
+
+    /**
+     * Value of the best moves found by the last findBestMoves call.
+     */
+    private int bestValue;
+
+    /**
+     * Creates a searcher with unlimited depth, i.e. one that searches until the end of the game.
+     */
+    public AlphaBetaSearcher() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public AlphaBetaSearcher(int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Illegal maximum depth: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Finds all moves having the best minimax value for the side on turn.
+     *
+     * @return Best moves, in ascending order of field numbers. Empty if the game is over.
+     */
+    public List<Integer> findBestMoves(Board board) {
+        GameState state = new GameState(board);
+        bestValue = -WIN - 1;
+        List<Integer> bestMoves = new ArrayList<>();
+        if (state.getWinner() != null) {
+            return bestMoves;
+        }
+        moveOrder = board.getGeometry().getMoveOrder();
+        int freeFields = board.getFreeFieldsMask();
+        for (int field : moveOrder) {
+            if ((freeFields & (1 << (field - 1))) != 0) {
+                state.makeMove(field);
+                // Searching with alpha = bestValue - 1 gives us exact values for moves that are at least as good
+                // as the best one found so far. (The values are integers.)
+                int value = -negamax(state, -WIN - 1, -(bestValue - 1), 1);
+                state.unmakeMove();
+                if (value > bestValue) {
+                    bestMoves.clear();
+                    bestMoves.add(field);
+                    bestValue = value;
+                } else if (value == bestValue) {
+                    bestMoves.add(field);
+                }
+            }
+        }
+        Collections.sort(bestMoves);
+        return bestMoves;
+    }
+
+    /**
+     * Fail-soft negamax with alpha-beta pruning. Moves are made and taken back in place, so the state
+     * is the same after the call as before it.
+     *
+     * @return Value of the position for the side on turn. If it is outside (alpha, beta) it is only a bound.
+     */
+    private int negamax(GameState state, int alpha, int beta, int depth) {
+        nodesSearched++;
+        Integer winner = state.getWinner();
+        if (winner != null) {
+            return winner == 0 ? 0 : (winner == state.getTurn() ? WIN : -WIN);
+        } else if (depth >= maxDepth) {
+            return 0;       // we don't know, so let's be neutral
+        }
+        int best = -WIN - 1;
+        int freeFields = state.getBoard().getFreeFieldsMask();
+        for (int field : moveOrder) {
+            if ((freeFields & (1 << (field - 1))) != 0) {
+                state.makeMove(field);
+                int value = -negamax(state, -beta, -alpha, depth + 1);
+                state.unmakeMove();
+                if (value > best) {
+                    best = value;
+                    if (value > alpha) {
+                        alpha = value;
+                        if (alpha >= beta) {
+                            break;      // the opponent would not let us get here
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return Value of the best moves found by the last findBestMoves call (for the side that was on turn):
+     * 100 = win, -100 = loss, 0 = tie (or unknown, if the search depth was limited).
+     */
+    public int getBestValue() {
+        return bestValue;
+    }
+
+    public long getNodesSearched() {
+        return nodesSearched;
+    }
+
+    public void resetNodesSearched() {
+        nodesSearched = 0;
+    }
+}
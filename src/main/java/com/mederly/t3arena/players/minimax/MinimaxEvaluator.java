@@ -0,0 +1,101 @@
+package com.mederly.t3arena.players.minimax;
+
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.GameState;
+
+import java.util.Arrays;
+
+import static com.mederly.t3arena.Board.PLAYER_O;
+import static com.mederly.t3arena.Board.PLAYER_X;
+
+/**
+ *  Minimax evaluator backed by a transposition table: each distinct position (up to symmetry) is evaluated
+ *  only once, regardless of how many move orders lead to it. This is much cheaper than evaluating
+ *  the whole StateNode tree, where the same position appears many times.
+ *
+ *  Values are the same as in StateNode: 100 (X wins), -100 (O wins) or 0 (tie).
+ */
+public class MinimaxEvaluator {
+
+    /**
+     * Marks positions that were not evaluated (yet).
+     */
+    static final byte NOT_EVALUATED = Byte.MIN_VALUE;
+
+    private static final byte WIN_X = 100;
+    private static final byte WIN_O = -100;
+    private static final byte TIE = 0;
+
+    /**
+     * Transposition table: minimax values for X, indexed by canonical keys of boards.
+     */
+    private final byte[] valuesForX = new byte[Board.POSITION_CODES];
+
+    /**
+     * Number of positions evaluated so far.
+     */
+    private int evaluatedPositions;
+
+    public MinimaxEvaluator() {
+        Arrays.fill(valuesForX, NOT_EVALUATED);
+    }
+
+    /**
+     * Evaluates given board (and all positions reachable from it).
+     *
+     * @return Minimax value of the board for X.
+     */
+    public int evaluate(Board board) {
+        return evaluate(new GameState(board));
+    }
+
+    /**
+     * Evaluates the position, making and taking back moves in place (so the state is unchanged after the call).
+     */
+    private int evaluate(GameState state) {
+        int key = state.getBoard().getCanonicalKey();
+        byte value = valuesForX[key];
+        if (value == NOT_EVALUATED) {
+            value = computeValue(state);
+            valuesForX[key] = value;
+            evaluatedPositions++;
+        }
+        return value;
+    }
+
+    private byte computeValue(GameState state) {
+        Integer winner = state.getWinner();
+        if (winner != null) {
+            switch (winner.byteValue()) {
+                case PLAYER_X: return WIN_X;
+                case PLAYER_O: return WIN_O;
+                default: return TIE;
+            }
+        }
+        byte side = state.getTurn();
+        int best = side == PLAYER_X ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int fields = state.getBoard().getFreeFieldsMask(); fields != 0; fields &= fields - 1) {
+            state.makeMove(Board.getFirstField(fields));
+            int childValue = evaluate(state);
+            state.unmakeMove();
+            best = side == PLAYER_X ?
+                    Math.max(best, childValue) :        // X selects the maximum
+                    Math.min(best, childValue);         // O selects the minimum (i.e. the worst for X)
+        }
+        return (byte) best;
+    }
+
+    /**
+     * @return Number of distinct positions (up to symmetry) evaluated so far.
+     */
+    public int getEvaluatedPositions() {
+        return evaluatedPositions;
+    }
+
+    /**
+     * @return The transposition table (not a copy!). Positions not evaluated are marked by NOT_EVALUATED.
+     */
+    byte[] getValuesForX() {
+        return valuesForX;
+    }
+}
@@ -1,146 +1,159 @@
 package com.mederly.t3arena.players.minimax;
 
-import com.mederly.t3arena.GameState;
-import com.mederly.t3arena.Player;
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.BoardGeometry;
 import com.mederly.t3arena.players.EqualMoveSelector;
+import com.mederly.t3arena.players.FieldMaskPlayerBase;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import static com.mederly.t3arena.Board.PLAYER_X;
-
 /**
  *  Implementation of a minimax player.
  */
-public class MinimaxPlayer implements Player {
+public class MinimaxPlayer extends FieldMaskPlayerBase {
 
     /**
-     * Pre-computed minimax tree.
+     * How the minimax values are obtained.
      */
-    private StateNode stateTreeRoot;
+    public enum Mode {
+
+        /**
+         * Values are looked up in the pre-computed MinimaxTable (shared by all minimax players).
+         * Only the standard board is supported.
+         */
+        PRECOMPUTED_TABLE,
+
+        /**
+         * Values are searched for at the time of the move using alpha-beta pruning.
+         * Boards of any geometry are supported.
+         */
+        ALPHA_BETA
+    }
 
-    /**
-     * Where we are in the current game. On each move we simply move down the state tree.
-     * On our move, we select the best option to proceed.
-     * On opponent's move, we simply take the route he has chosen.
-     */
-    private StateNode currentNode;
+    private final Mode mode;
 
     /**
-     * For what side do we play in this game?
+     * Pre-computed minimax values. Used in PRECOMPUTED_TABLE mode.
      */
-    private byte side;
+    private final MinimaxTable minimaxTable;
 
     /**
-     * Our name.
+     * On-demand search. Used in ALPHA_BETA mode.
      */
-    private final String name;
+    private final AlphaBetaSearcher searcher;
 
     /**
      * How to select among equally-valued moves.
      */
     private final EqualMoveSelector equalMoveSelector;
 
-    public MinimaxPlayer(String name, EqualMoveSelector equalMoveSelector) {
-        this.name = name;
-        this.equalMoveSelector = equalMoveSelector;
-        computeStateTree();
-    }
+    /**
+     * Board on which candidate moves are tried in PRECOMPUTED_TABLE mode (a copy of the current one, so that
+     * looking at the moves allocates nothing).
+     */
+    private final Board workingBoard = new Board();
 
-    @Override
-    public void beforeMatch() {
-        // nothing to do here
-    }
+    /**
+     * List of best moves, reused when selecting a move in PRECOMPUTED_TABLE mode.
+     */
+    private final List<Integer> tableBestMoves = new ArrayList<>();
 
-    @Override
-    public void beforeGame(byte side) {
-        currentNode = stateTreeRoot;
-        this.side = side;
-    }
+    /**
+     * Number of nodes searched when selecting the last move (ALPHA_BETA mode only).
+     */
+    private long lastMoveNodesSearched;
 
     /**
-     * This method moves us down the state tree, based on the move taken. (Our or opponent's move.)
+     * Number of nodes searched since the player was created (ALPHA_BETA mode only).
      */
-    private void registerMove(int chosenField) {
-        StateNode newChild = currentNode.getChildren()[chosenField - 1];
-        if (newChild != null) {
-            currentNode = newChild;
-        } else {
-            throw new IllegalStateException("Dead end! How's this possible? Current node = " + currentNode + ", chosen field: " + chosenField);
-        }
+    private long totalNodesSearched;
+
+    public MinimaxPlayer(String name, EqualMoveSelector equalMoveSelector) {
+        this(name, equalMoveSelector, Mode.PRECOMPUTED_TABLE);
+    }
+
+    public MinimaxPlayer(String name, EqualMoveSelector equalMoveSelector, Mode mode) {
+        this(name, equalMoveSelector, mode, Integer.MAX_VALUE);
     }
 
     /**
-     * Called by the framework on opponent's move.
+     * @param maxSearchDepth Maximum depth of the search in ALPHA_BETA mode. Useful for larger boards.
      */
+    public MinimaxPlayer(String name, EqualMoveSelector equalMoveSelector, Mode mode, int maxSearchDepth) {
+        super(name);
+        this.equalMoveSelector = equalMoveSelector;
+        this.mode = mode;
+        this.minimaxTable = mode == Mode.PRECOMPUTED_TABLE ? MinimaxTable.getInstance() : null;
+        this.searcher = mode == Mode.ALPHA_BETA ? new AlphaBetaSearcher(maxSearchDepth) : null;
+    }
+
     @Override
-    public void onOpponentMove(int field) {
-        // On the opponent's move we simply move down the three.
-        registerMove(field);
+    public void beforeGame(byte side, BoardGeometry geometry) {
+        if (mode == Mode.PRECOMPUTED_TABLE && !geometry.isStandard()) {
+            throw new UnsupportedOperationException("Player " + getName() + " uses pre-computed table, so it cannot play on " + geometry + " board");
+        }
+        super.beforeGame(side, geometry);
     }
 
-    /**
-     * Called by the framework to get our move.
-     */
     @Override
-    public int move() {
-        // First let's check the sanity of the game state.
-        if (side != currentNode.getGameState().getTurn()) {
-            throw new IllegalStateException("We play " + side + " but the current node indicates otherwise: " + currentNode);
+    protected int selectMyMove(int freeFields) {
+        List<Integer> bestMoves;
+        switch (mode) {
+            case PRECOMPUTED_TABLE: bestMoves = getBestMovesFromTable(freeFields); break;
+            case ALPHA_BETA: bestMoves = getBestMovesBySearch(); break;
+            default: throw new AssertionError("Unknown mode: " + mode);
         }
+        if (bestMoves.isEmpty()) {
+            throw new IllegalStateException("No moves to choose from! Game state = " + gameState);
+        } else if (bestMoves.size() > 1) {
+            return equalMoveSelector.selectMove(bestMoves);
+        } else {
+            return bestMoves.get(0);
+        }
+    }
 
-        // Now let's select the best child to go to. What "the best" is depends on whether we play X or O.
+    /**
+     * Selects the best moves. What "the best" is depends on whether we play X or O.
+     */
+    private List<Integer> getBestMovesFromTable(int freeFields) {
         int maxValue = Integer.MIN_VALUE;
-        List<Integer> bestMoves = new ArrayList<>();
-        StateNode[] children = currentNode.getChildren();
-        for (int i = 0; i < children.length; i++) {
-            StateNode child = children[i];
-            if (child != null) {
-                int currentValue = side == PLAYER_X ? child.getValueForX() : child.getValueForO();
-                if (bestMoves.isEmpty() || currentValue > maxValue) {
-                    bestMoves.clear();
-                    bestMoves.add(i+1);
-                    maxValue = currentValue;
-                } else if (currentValue == maxValue) {
-                    bestMoves.add(i+1);
-                }
+        List<Integer> bestMoves = tableBestMoves;
+        bestMoves.clear();
+        workingBoard.copyFrom(gameState.getBoard());
+        for (; freeFields != 0; freeFields &= freeFields - 1) {
+            int field = Board.getFirstField(freeFields);
+            workingBoard.registerMove(side, field);
+            int currentValue = minimaxTable.getValue(workingBoard, side);
+            workingBoard.unregisterMove(field);
+            if (bestMoves.isEmpty() || currentValue > maxValue) {
+                bestMoves.clear();
+                bestMoves.add(field);
+                maxValue = currentValue;
+            } else if (currentValue == maxValue) {
+                bestMoves.add(field);
             }
         }
-        if (!bestMoves.isEmpty()) {
-            int myMove;
-            if (bestMoves.size() > 1) {
-                myMove = equalMoveSelector.selectMove(bestMoves);
-            } else {
-                myMove = bestMoves.get(0);
-            }
-            registerMove(myMove);
-            return myMove;
-        } else {
-            // If there's no children, then it must be a terminal state. The framework should not have called us in such situation!
-            throw new IllegalStateException("No children to choose from! Current state node = " + currentNode);
-        }
+        return bestMoves;
     }
 
-    @Override
-    public void afterGame(GameState gameState, List<Integer> moves) {
-        // nothing to do here
+    private List<Integer> getBestMovesBySearch() {
+        searcher.resetNodesSearched();
+        List<Integer> bestMoves = searcher.findBestMoves(gameState.getBoard());
+        lastMoveNodesSearched = searcher.getNodesSearched();
+        totalNodesSearched += lastMoveNodesSearched;
+        return bestMoves;
     }
 
-    @Override
-    public String getName() {
-        return name;
+    public Mode getMode() {
+        return mode;
     }
 
-    /**
-     * Creates and evaluates the state tree.
-     */
-    private void computeStateTree() {
-        stateTreeRoot = new StateNode(new GameState());
-        stateTreeRoot.evaluate();
+    public long getLastMoveNodesSearched() {
+        return lastMoveNodesSearched;
     }
 
-    @Override
-    public String toString() {
-        return name;
+    public long getTotalNodesSearched() {
+        return totalNodesSearched;
     }
 }
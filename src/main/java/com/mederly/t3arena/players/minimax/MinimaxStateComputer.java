@@ -20,8 +20,8 @@ public class MinimaxStateComputer {
 //        stateTreeRoot.dumpTree(0);
 //        dumpStates(stateTreeRoot.getAllNodes());
 
-        Map<Board, StateNode> uniqueStates = getUniqueStates(stateTreeRoot);
-        dumpStates(uniqueStates.values());
+        Map<Integer, StateNode> canonicalStates = getCanonicalStates(stateTreeRoot);
+        dumpStates(canonicalStates.values());
     }
 
     /**
@@ -45,6 +45,33 @@ public class MinimaxStateComputer {
         return uniqueStates;
     }
 
+    /**
+     * Selects states with canonically different boards, i.e. boards that are not mere rotations or mirrorings
+     * of each other (see Board.getCanonicalKey). The resulting map is indexed by canonical keys and contains
+     * nodes having canonical boards. Checks that symmetric states have the same evaluations for X and O.
+     */
+    public static Map<Integer, StateNode> getCanonicalStates(StateNode stateTreeRoot) {
+        Map<Integer, StateNode> canonicalStates = new TreeMap<>();
+        Map<Integer, StateNode> anyStates = new HashMap<>();
+        for (StateNode stateNode : stateTreeRoot.getAllNodes()) {
+            Board board = stateNode.getBoard();
+            int key = board.getCanonicalKey();
+            StateNode existingNode = anyStates.get(key);
+            if (existingNode != null) {
+                if (stateNode.getValueForX().intValue() != existingNode.getValueForX().intValue() ||
+                        stateNode.getValueForO().intValue() != existingNode.getValueForO().intValue()) {
+                    throw new IllegalStateException("Symmetric boards, different evaluations: " + stateNode + " vs " + existingNode);
+                }
+            } else {
+                anyStates.put(key, stateNode);
+            }
+            if (board.getPositionCode() == key) {
+                canonicalStates.put(key, stateNode);
+            }
+        }
+        return canonicalStates;
+    }
+
     private static void dumpStates(Collection<StateNode> allStates) {
         System.out.println(String.format("%7s\t%9s\t%9s\t%4s\t%4s\t%4s", "#", "Board", "Num", "Turn", "ValX", "ValO"));
         Iterator<StateNode> iterator = allStates.iterator();
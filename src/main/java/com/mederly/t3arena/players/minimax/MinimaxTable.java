@@ -0,0 +1,90 @@
+package com.mederly.t3arena.players.minimax;
+
+import com.mederly.t3arena.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mederly.t3arena.Board.PLAYER_X;
+
+/**
+ *  Minimax values of all reachable positions. Computed once and then shared (read-only) by all minimax players
+ *  and diagnostics.
+ *
+ *  Values are stored in a single array indexed by canonical keys of boards (see Board.getCanonicalKey),
+ *  so symmetric boards share their entry. Values are the same as in StateNode: 100 (X wins), -100 (O wins)
+ *  or 0 (tie), assuming optimal play of both sides.
+ */
+public class MinimaxTable {
+
+    /**
+     * Marks positions that cannot be reached in a game, i.e. ones not evaluated when starting from the empty board.
+     */
+    private static final byte UNREACHABLE = MinimaxEvaluator.NOT_EVALUATED;
+
+    /**
+     * Minimax values for X, indexed by canonical key. Values for O are simply negated values for X.
+     */
+    private final byte[] valuesForX;
+
+    private static class Holder {
+        private static final MinimaxTable INSTANCE = new MinimaxTable();
+    }
+
+    /**
+     * @return The shared table. It is computed on the first invocation.
+     */
+    public static MinimaxTable getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private MinimaxTable() {
+        MinimaxEvaluator evaluator = new MinimaxEvaluator();
+        evaluator.evaluate(new Board());
+        valuesForX = evaluator.getValuesForX();
+    }
+
+    /**
+     * @return true if the board can occur in a game
+     */
+    public boolean isReachable(Board board) {
+        return valuesForX[board.getCanonicalKey()] != UNREACHABLE;
+    }
+
+    public int getValueForX(Board board) {
+        return getValue(board.getCanonicalKey());
+    }
+
+    public int getValueForO(Board board) {
+        return -getValue(board.getCanonicalKey());
+    }
+
+    /**
+     * @return Minimax value of the board for the given side (1 = PLAYER_X, 2 = PLAYER_O).
+     */
+    public int getValue(Board board, byte side) {
+        return side == PLAYER_X ? getValueForX(board) : getValueForO(board);
+    }
+
+    private int getValue(int canonicalKey) {
+        byte value = valuesForX[canonicalKey];
+        if (value == UNREACHABLE) {
+            throw new IllegalArgumentException("Position with key " + canonicalKey + " is not reachable");
+        }
+        return value;
+    }
+
+    /**
+     * @return All reachable boards, ordered by their position codes.
+     */
+    public List<Board> getReachableBoards() {
+        List<Board> boards = new ArrayList<>();
+        for (int code = 0; code < Board.POSITION_CODES; code++) {
+            Board board = Board.fromPositionCode(code);
+            if (isReachable(board)) {
+                boards.add(board);
+            }
+        }
+        return boards;
+    }
+}
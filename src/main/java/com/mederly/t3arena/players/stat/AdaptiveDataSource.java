@@ -1,6 +1,12 @@
 package com.mederly.t3arena.players.stat;
 
 import com.mederly.t3arena.Board;
+import com.mederly.t3arena.GameState;
+
+import java.util.List;
+
+import static com.mederly.t3arena.Board.PLAYER_O;
+import static com.mederly.t3arena.Board.PLAYER_X;
 
 /**
  *  Data source that can be updated.
@@ -8,7 +14,8 @@ import com.mederly.t3arena.Board;
 public interface AdaptiveDataSource extends DataSource {
 
     /**
-     * Updates statistics for a given board.
+     * Updates statistics for a given board. Implementations must not keep the board object, as the caller
+     * may modify it afterwards.
      * @param board Board to be updated
      * @param deltaWinX Delta for wins of X
      * @param deltaWinO Delta for wins of O
@@ -16,6 +23,38 @@ public interface AdaptiveDataSource extends DataSource {
      */
     void update(Board board, int deltaWinX, int deltaWinO, int deltaTie);
 
+    /**
+     * Updates statistics using a finished game: all positions of the game (from the empty board
+     * to the final one) get a win for X, a win for O or a tie, depending on the winner.
+     *
+     * @param moves Moves of the game, starting with X.
+     * @param winner 1 = PLAYER_X, 2 = PLAYER_O, 0 = tie
+     */
+    default void updateGame(List<Integer> moves, int winner) {
+        int deltaWinX = winner == PLAYER_X ? 1 : 0;
+        int deltaWinO = winner == PLAYER_O ? 1 : 0;
+        int deltaTie = winner == 0 ? 1 : 0;
+        Board board = new Board();
+        byte player = PLAYER_X;
+        update(board, deltaWinX, deltaWinO, deltaTie);
+        for (Integer move : moves) {
+            board.registerMove(player, move);
+            player = GameState.getOtherPlayer(player);
+            update(board, deltaWinX, deltaWinO, deltaTie);
+        }
+    }
+
+    /**
+     * Applies aggregated updates from a batch of games. The default implementation calls update(Board, ...)
+     * once per position, using the canonical board of the position. Data sources that can do better
+     * (e.g. that are indexed by canonical keys themselves) should override this method.
+     * The batch must not be kept after the call returns, as the caller may clear and reuse it.
+     */
+    default void update(StatisticsBatch batch) {
+        batch.forEachPosition((key, deltaWinX, deltaWinO, deltaTie) ->
+                update(Board.fromPositionCode(key), deltaWinX, deltaWinO, deltaTie));
+    }
+
     /**
      * @return true if the store is locked for updates
      */
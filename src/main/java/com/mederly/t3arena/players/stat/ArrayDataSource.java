@@ -0,0 +1,86 @@
+package com.mederly.t3arena.players.stat;
+
+import com.mederly.t3arena.Board;
+
+import static com.mederly.t3arena.Board.PLAYER_O;
+import static com.mederly.t3arena.Board.PLAYER_X;
+
+/**
+ *  Data source keeping the statistics in flat primitive arrays, indexed by canonical keys of boards
+ *  (see Board.getCanonicalKey). So a lookup is just a few array accesses, and - when using
+ *  getStatistics(Board, Statistics) - it needs no allocation.
+ *
+ *  Symmetric boards share their statistics.
+ */
+public class ArrayDataSource implements DataSource {
+
+    private final String name;
+
+    private final int[] winX = new int[Board.POSITION_CODES];
+    private final int[] winO = new int[Board.POSITION_CODES];
+    private final int[] ties = new int[Board.POSITION_CODES];
+
+    public ArrayDataSource(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Statistics getStatistics(Board board) {
+        return getStatistics(board, new Statistics());
+    }
+
+    @Override
+    public Statistics getStatistics(Board board, Statistics statistics) {
+        int key = board.getCanonicalKey();
+        statistics.set(winX[key], winO[key], ties[key]);
+        return statistics;
+    }
+
+    /**
+     * Records a game result for the board with given canonical key.
+     *
+     * @param winner 1 = PLAYER_X, 2 = PLAYER_O, 0 = tie
+     */
+    protected void increment(int key, int winner) {
+        switch (winner) {
+            case PLAYER_X: winX[key]++; return;
+            case PLAYER_O: winO[key]++; return;
+            default: ties[key]++;
+        }
+    }
+
+    /**
+     * Updates statistics for the board with given canonical key.
+     */
+    protected void add(int key, int deltaWinX, int deltaWinO, int deltaTie) {
+        winX[key] += deltaWinX;
+        winO[key] += deltaWinO;
+        ties[key] += deltaTie;
+    }
+
+    /**
+     * @return Number of (canonical) positions having any samples.
+     */
+    public int getPositions() {
+        int positions = 0;
+        for (int key = 0; key < Board.POSITION_CODES; key++) {
+            if (winX[key] != 0 || winO[key] != 0 || ties[key] != 0) {
+                positions++;
+            }
+        }
+        return positions;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "name='" + name + '\'' +
+                ", entries=" + getPositions() +
+                '}';
+    }
+}
@@ -0,0 +1,221 @@
+package com.mederly.t3arena.players.stat;
+
+import com.mederly.t3arena.Board;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ *  Adaptive data source that collects updates into batches and applies them to the underlying data source
+ *  in bulk - either synchronously or asynchronously (using an executor).
+ *
+ *  The updates are coalesced per position, so the underlying data source gets a single update per position
+ *  and batch. Batches are applied one after another, never concurrently, so the underlying data source need not
+ *  be thread-safe for updates. It should be safe for reads concurrent with updates, though, if used asynchronously.
+ *
+ *  Reads go directly to the underlying data source, so they do not see updates that are still buffered.
+ *  Use flush() to apply them.
+ *
+ *  If applying a batch asynchronously fails, only that batch is lost: the failure is recorded, later batches
+ *  are applied as usual, and the failure is thrown by the next flush().
+ */
+public class BufferedAdaptiveDataSource implements AdaptiveDataSource {
+
+    /**
+     * How many applied batches are kept for reuse. (A batch takes about 335 KB, so they are not reallocated.)
+     */
+    private static final int MAX_SPARE_BATCHES = 2;
+
+    private final AdaptiveDataSource delegate;
+
+    /**
+     * After this number of games the batch is passed to the underlying data source.
+     */
+    private final int gamesPerBatch;
+
+    /**
+     * Executor used to apply the batches. If null, batches are applied synchronously by the thread that filled them.
+     */
+    private final Executor executor;
+
+    /**
+     * Batch being filled. Guarded by "this".
+     */
+    private StatisticsBatch currentBatch = new StatisticsBatch();
+
+    /**
+     * Applied (and cleared) batches ready to be filled again. Guarded by "this".
+     */
+    private final Deque<StatisticsBatch> spareBatches = new ArrayDeque<>();
+
+    /**
+     * Completion of the last batch application. Further batches are chained after it. Guarded by "this".
+     */
+    private CompletableFuture<Void> lastApplication = CompletableFuture.completedFuture(null);
+
+    /**
+     * First failure of an asynchronous batch application since the last flush (null if none).
+     * Further failures are added to it as suppressed exceptions. Guarded by "this".
+     */
+    private RuntimeException applicationFailure;
+
+    /**
+     * Creates a data source that applies the batches synchronously.
+     */
+    public BufferedAdaptiveDataSource(AdaptiveDataSource delegate, int gamesPerBatch) {
+        this(delegate, gamesPerBatch, null);
+    }
+
+    public BufferedAdaptiveDataSource(AdaptiveDataSource delegate, int gamesPerBatch, Executor executor) {
+        if (gamesPerBatch < 1) {
+            throw new IllegalArgumentException("Illegal number of games per batch: " + gamesPerBatch);
+        }
+        this.delegate = delegate;
+        this.gamesPerBatch = gamesPerBatch;
+        this.executor = executor;
+    }
+
+    @Override
+    public Statistics getStatistics(Board board) {
+        return delegate.getStatistics(board);
+    }
+
+    @Override
+    public Statistics getStatistics(Board board, Statistics statistics) {
+        return delegate.getStatistics(board, statistics);
+    }
+
+    @Override
+    public synchronized void update(Board board, int deltaWinX, int deltaWinO, int deltaTie) {
+        currentBatch.add(board.getCanonicalKey(), deltaWinX, deltaWinO, deltaTie);
+    }
+
+    @Override
+    public void updateGame(List<Integer> moves, int winner) {
+        StatisticsBatch fullBatch;
+        synchronized (this) {
+            currentBatch.addGame(moves, winner);
+            if (currentBatch.getGames() < gamesPerBatch) {
+                return;
+            }
+            fullBatch = takeCurrentBatch();
+        }
+        apply(fullBatch);
+    }
+
+    @Override
+    public void update(StatisticsBatch batch) {
+        batch.forEachPosition(this::addToCurrentBatch);
+    }
+
+    private synchronized void addToCurrentBatch(int key, int deltaWinX, int deltaWinO, int deltaTie) {
+        currentBatch.add(key, deltaWinX, deltaWinO, deltaTie);
+    }
+
+    /**
+     * Applies all buffered updates to the underlying data source and waits until they (and all previously
+     * submitted batches) are applied.
+     *
+     * @throws IllegalStateException if applying some of the batches asynchronously failed since the last flush
+     */
+    public void flush() {
+        StatisticsBatch batch;
+        synchronized (this) {
+            batch = currentBatch.isEmpty() ? null : takeCurrentBatch();
+        }
+        if (batch != null) {
+            apply(batch);
+        }
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            last = lastApplication;
+        }
+        last.join();
+        RuntimeException failure;
+        synchronized (this) {
+            failure = applicationFailure;
+            applicationFailure = null;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Couldn't apply some of the batches to " + delegate + ": " + failure, failure);
+        }
+    }
+
+    // must be called under "this" lock
+    private StatisticsBatch takeCurrentBatch() {
+        StatisticsBatch batch = currentBatch;
+        StatisticsBatch spare = spareBatches.pollFirst();
+        currentBatch = spare != null ? spare : new StatisticsBatch();
+        return batch;
+    }
+
+    private void recycle(StatisticsBatch batch) {
+        batch.clear();
+        synchronized (this) {
+            if (spareBatches.size() < MAX_SPARE_BATCHES) {
+                spareBatches.addFirst(batch);
+            }
+        }
+    }
+
+    private void apply(StatisticsBatch batch) {
+        if (executor == null) {
+            try {
+                synchronized (delegate) {
+                    delegate.update(batch);
+                }
+            } finally {
+                recycle(batch);
+            }
+        } else {
+            synchronized (this) {
+                lastApplication = lastApplication.thenRunAsync(() -> applyAsync(batch), executor);
+            }
+        }
+    }
+
+    /**
+     * Applies the batch, recording a failure (if any) so that the batches chained after it are still applied.
+     */
+    private void applyAsync(StatisticsBatch batch) {
+        try {
+            delegate.update(batch);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (applicationFailure == null) {
+                    applicationFailure = e;
+                } else {
+                    applicationFailure.addSuppressed(e);
+                }
+            }
+        } finally {
+            recycle(batch);
+        }
+    }
+
+    /**
+     * @return true if the underlying data source is locked. (Updates are buffered even then, but they are
+     * ignored when they reach the underlying data source.)
+     */
+    @Override
+    public boolean isLocked() {
+        return delegate.isLocked();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferedAdaptiveDataSource{" +
+                "delegate=" + delegate +
+                ", gamesPerBatch=" + gamesPerBatch +
+                ", async=" + (executor != null) +
+                '}';
+    }
+}
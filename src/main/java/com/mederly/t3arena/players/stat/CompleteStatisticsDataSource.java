@@ -1,95 +1,163 @@
 package com.mederly.t3arena.players.stat;
 
 import com.mederly.t3arena.Board;
-import com.mederly.t3arena.GameState;
+import com.mederly.t3arena.GameTreeEnumerator;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  *  Data source providing complete statistics - gathered by playing all possible games with myself.
+ *
+ *  The games can be generated either sequentially or in parallel using a fork-join pool. The results are the same.
  */
-public class CompleteStatisticsDataSource implements DataSource {
+public class CompleteStatisticsDataSource extends ArrayDataSource {
 
-    private String name;
-
-    private Map<Board, Statistics> statisticsMap = new TreeMap<>();
+    /**
+     * When generating in parallel, the game tree is split into subtrees starting after this number of moves
+     * (i.e. 72 subtrees for the depth of 2).
+     */
+    private static final int SPLIT_DEPTH = 2;
 
     public CompleteStatisticsDataSource() {
+        this(null);
+    }
+
+    /**
+     * @param pool Pool used to generate the statistics in parallel. If null, they are generated sequentially.
+     */
+    public CompleteStatisticsDataSource(ForkJoinPool pool) {
+        super(null);
         long start = System.currentTimeMillis();
-        generateStatistics();
-        System.out.println("Statistics for " + statisticsMap.size() + " boards obtained in " + (System.currentTimeMillis() - start) + " ms");
+        if (pool != null) {
+            generateStatisticsInParallel(pool);
+        } else {
+            generateStatistics();
+        }
+        System.out.println("Statistics for " + getPositions() + " boards obtained in " + (System.currentTimeMillis() - start) + " ms");
     }
 
     private void generateStatistics() {
-        List<GameState> states = new ArrayList<>();
-        states.add(new GameState());
-        computeAllGames(states);
+        int[] counts = new int[Board.POSITION_CODES * 3];
+        new GameTreeEnumerator().enumerate(new StatisticsCollector(new int[0], counts));
+        addCounts(counts);
     }
 
     /**
-     * Computes all games starting at given sequence of states.
-     * For all finished game updates the statisticsMap with information on states from this particular game.
+     * Each worker thread accumulates its counts in its own array; the arrays are added up at the end. As the counts
+     * are just sums over all games, the order in which the subtrees are processed does not matter.
+     *
+     * The arrays are kept in a map local to this call rather than in thread-locals, so that they are not retained
+     * by the (possibly long-lived) pool threads after the statistics are generated.
      */
-    private void computeAllGames(List<GameState> states) {
-        assert !states.isEmpty();
+    private void generateStatisticsInParallel(ForkJoinPool pool) {
+        Map<Thread, int[]> threadCounts = new ConcurrentHashMap<>();
+        pool.invoke(new GenerationTask(new Board(), new int[0], threadCounts));
+        for (int[] counts : threadCounts.values()) {
+            addCounts(counts);
+        }
+    }
 
-        GameState currentState = states.get(states.size() - 1);
-        Integer winner = currentState.determineWinner();
-        if (winner != null) {
-            updateStatistics(states, winner);
-        } else {
-            for (int i = 1; i <= 9; i++) {
-                if (currentState.getBoard().getAt(i) == 0) {
-                    // This field is free, let's try this move.
-                    GameState newState = new GameState(currentState, i);
-                    states.add(newState);
-                    computeAllGames(states);
-                    states.remove(states.size() - 1);       // remove the last state
-                } else {
-                    // This field is already occupied, so no try here.
-                }
+    private void addCounts(int[] counts) {
+        for (int key = 0; key < Board.POSITION_CODES; key++) {
+            int i = key * 3;
+            if (counts[i] != 0 || counts[i + Board.PLAYER_X] != 0 || counts[i + Board.PLAYER_O] != 0) {
+                add(key, counts[i + Board.PLAYER_X], counts[i + Board.PLAYER_O], counts[i]);
             }
         }
     }
 
-    private void updateStatistics(List<GameState> states, int winner) {
-        //System.out.println("Updating statistics (winner: " + winner + ")");
-        for (GameState state : states) {
-            //System.out.println(" - " + state.getBoard().getStringRepresentation());
-            Board board = state.getBoard();
-            Statistics statistics = statisticsMap.get(board);
-            if (statistics == null) {
-                statistics = new Statistics();
-                statisticsMap.put(board, statistics);
+    /**
+     * @return Canonical key of the board, or -1 if the board is not canonical. Statistics of non-canonical boards
+     * are the same as of their canonical variants, so we skip them.
+     */
+    private static int getKeyIfCanonical(Board board) {
+        return board.isCanonical() ? board.getPositionCode() : -1;
+    }
+
+    /**
+     * For each finished game updates the counts with information on positions from this particular game.
+     * Canonical keys of positions on the current path (including the prefix that led to the enumerated subtree)
+     * are kept on a stack, so nothing is allocated per game.
+     *
+     * Counts are indexed by key * 3 + winner (0 = tie, 1 = X, 2 = O).
+     */
+    private static class StatisticsCollector implements GameTreeEnumerator.Visitor {
+
+        private final int[] keys = new int[10];
+        private final int prefixLength;
+        private final int[] counts;
+
+        private StatisticsCollector(int[] prefixKeys, int[] counts) {
+            System.arraycopy(prefixKeys, 0, keys, 0, prefixKeys.length);
+            this.prefixLength = prefixKeys.length;
+            this.counts = counts;
+        }
+
+        @Override
+        public void enterPosition(Board board, int depth) {
+            keys[prefixLength + depth] = getKeyIfCanonical(board);
+        }
+
+        @Override
+        public void onGameEnd(Board board, int[] moves, int depth, int winner) {
+            for (int i = 0; i <= prefixLength + depth; i++) {
+                if (keys[i] >= 0) {
+                    counts[keys[i] * 3 + winner]++;
+                }
             }
-            statistics.increment(winner);
         }
     }
 
-    @Override
-    public Statistics getStatistics(Board board) {
-        Statistics statistics = statisticsMap.get(board);
-        if (statistics != null) {
-            return statistics;
-        } else {
-            System.out.println("No statistics for " + board);
-            return new Statistics();
+    /**
+     * Generates statistics for games continuing from the given board, splitting the work by the next moves
+     * until SPLIT_DEPTH is reached.
+     */
+    @SuppressWarnings("serial")      // tasks are never serialized
+    private static class GenerationTask extends RecursiveAction {
+
+        private final Board board;
+        private final int[] prefixKeys;         // keys of positions before this board
+        private final Map<Thread, int[]> threadCounts;
+
+        private GenerationTask(Board board, int[] prefixKeys, Map<Thread, int[]> threadCounts) {
+            this.board = board;
+            this.prefixKeys = prefixKeys;
+            this.threadCounts = threadCounts;
         }
-    }
 
-    @Override
-    public String getName() {
-        return name;
-    }
+        @Override
+        protected void compute() {
+            if (prefixKeys.length < SPLIT_DEPTH && board.getWinner() == null) {
+                int[] childPrefixKeys = new int[prefixKeys.length + 1];
+                System.arraycopy(prefixKeys, 0, childPrefixKeys, 0, prefixKeys.length);
+                childPrefixKeys[prefixKeys.length] = getKeyIfCanonical(board);
 
-    @Override
-    public String toString() {
-        return "CompleteStatisticsDataSource{" +
-                "name='" + name + '\'' +
-                ", entries=" + statisticsMap.size() +
-                '}';
+                int fields = board.getFreeFieldsMask();
+                GenerationTask[] subtasks = new GenerationTask[Board.getFieldCount(fields)];
+                for (int i = 0; fields != 0; fields &= fields - 1, i++) {
+                    Board child = new Board(board);
+                    child.registerMove(board.getPlayerOnTurn(), Board.getFirstField(fields));
+                    subtasks[i] = new GenerationTask(child, childPrefixKeys, threadCounts);
+                }
+                invokeAll(subtasks);
+            } else {
+                new GameTreeEnumerator(board).enumerate(new StatisticsCollector(prefixKeys, getThreadCounts()));
+            }
+        }
+
+        /**
+         * @return Counts of the current worker thread (created when the thread processes its first subtree).
+         */
+        private int[] getThreadCounts() {
+            int[] counts = threadCounts.get(Thread.currentThread());     // only this thread puts under its key
+            if (counts == null) {
+                counts = new int[Board.POSITION_CODES * 3];
+                threadCounts.put(Thread.currentThread(), counts);
+            }
+            return counts;
+        }
     }
 }
@@ -0,0 +1,162 @@
+package com.mederly.t3arena.players.stat;
+
+import com.mederly.t3arena.Board;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ *  Adaptive data source that can be shared by many (learning) players running in parallel threads.
+ *
+ *  Counters are kept in several stripes, each being an array of atomic counters for all positions.
+ *  A thread updates only "its" stripe (chosen by the thread ID), so threads rarely compete for the same
+ *  counter - not even for the hot ones, like the empty board, that are updated after each game. Reads sum
+ *  the counters over all stripes. No locks are used.
+ *
+ *  Individual counters are always exact, but a read running concurrently with updates may see some
+ *  counters of a position already updated and others not yet.
+ *
+ *  Like ArrayDataSource, the statistics are indexed by canonical keys of boards, so symmetric boards
+ *  share (and together update) their statistics.
+ */
+public class ConcurrentAdaptiveDataSource implements AdaptiveDataSource {
+
+    private static final int WIN_X = 0;
+    private static final int WIN_O = 1;
+    private static final int TIES = 2;
+
+    /**
+     * Number of counters per position.
+     */
+    private static final int COUNTERS = 3;
+
+    private final String name;
+
+    /**
+     * Counters of position with canonical key K are at indices K*3 (winX), K*3+1 (winO) and K*3+2 (ties),
+     * so they usually share a cache line.
+     */
+    private final AtomicIntegerArray[] stripes;
+
+    /**
+     * Number of stripes minus one (the number of stripes is a power of 2).
+     */
+    private final int stripeMask;
+
+    /**
+     * If true, updates are ignored. Used e.g. to freeze the data during evaluation phases.
+     */
+    private volatile boolean locked;
+
+    /**
+     * Creates the data source with the number of stripes based on the number of available processors.
+     */
+    public ConcurrentAdaptiveDataSource(String name) {
+        this(name, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ConcurrentAdaptiveDataSource(String name, int concurrencyLevel) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("Illegal concurrency level: " + concurrencyLevel);
+        }
+        int stripeCount = Integer.highestOneBit(concurrencyLevel);
+        if (stripeCount < concurrencyLevel) {
+            stripeCount <<= 1;
+        }
+        this.name = name;
+        this.stripes = new AtomicIntegerArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicIntegerArray(Board.POSITION_CODES * COUNTERS);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    @Override
+    public Statistics getStatistics(Board board) {
+        return getStatistics(board, new Statistics());
+    }
+
+    @Override
+    public Statistics getStatistics(Board board, Statistics statistics) {
+        int index = board.getCanonicalKey() * COUNTERS;
+        int winX = 0, winO = 0, ties = 0;
+        for (AtomicIntegerArray stripe : stripes) {
+            winX += stripe.get(index + WIN_X);
+            winO += stripe.get(index + WIN_O);
+            ties += stripe.get(index + TIES);
+        }
+        statistics.set(winX, winO, ties);
+        return statistics;
+    }
+
+    /**
+     * Updates statistics for a given board. Ignored if the data source is locked.
+     */
+    @Override
+    public void update(Board board, int deltaWinX, int deltaWinO, int deltaTie) {
+        if (locked) {
+            return;
+        }
+        int index = board.getCanonicalKey() * COUNTERS;
+        AtomicIntegerArray stripe = getStripe();
+        if (deltaWinX != 0) {
+            stripe.addAndGet(index + WIN_X, deltaWinX);
+        }
+        if (deltaWinO != 0) {
+            stripe.addAndGet(index + WIN_O, deltaWinO);
+        }
+        if (deltaTie != 0) {
+            stripe.addAndGet(index + TIES, deltaTie);
+        }
+    }
+
+    /**
+     * Applies the whole batch to the stripe of the current thread. Ignored if the data source is locked.
+     */
+    @Override
+    public void update(StatisticsBatch batch) {
+        if (locked) {
+            return;
+        }
+        AtomicIntegerArray stripe = getStripe();
+        batch.forEachPosition((key, deltaWinX, deltaWinO, deltaTie) -> {
+            int index = key * COUNTERS;
+            stripe.addAndGet(index + WIN_X, deltaWinX);
+            stripe.addAndGet(index + WIN_O, deltaWinO);
+            stripe.addAndGet(index + TIES, deltaTie);
+        });
+    }
+
+    /**
+     * @return Stripe to be updated by the current thread.
+     */
+    private AtomicIntegerArray getStripe() {
+        return stripes[(int) Thread.currentThread().getId() & stripeMask];
+    }
+
+    @Override
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /**
+     * Locks (or unlocks) the data source for updates. Cheap, so it can be switched e.g. between training
+     * and evaluation phases.
+     */
+    public void setLocked(boolean locked) {
+        this.locked = locked;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentAdaptiveDataSource{" +
+                "name='" + name + '\'' +
+                ", stripes=" + stripes.length +
+                ", locked=" + locked +
+                '}';
+    }
+}
@@ -12,6 +12,18 @@ public interface DataSource {
      */
     Statistics getStatistics(Board board);
 
+    /**
+     * Returns statistical information for given board position by filling it into provided object.
+     * Data sources that can do this without allocating anything should override this method.
+     *
+     * @return The provided statistics object.
+     */
+    default Statistics getStatistics(Board board, Statistics statistics) {
+        Statistics found = getStatistics(board);
+        statistics.set(found.getWinX(), found.getWinO(), found.getTies());
+        return statistics;
+    }
+
     /**
      * @return Data source name (optional).
      */
@@ -0,0 +1,219 @@
+package com.mederly.t3arena.players.stat;
+
+import com.mederly.t3arena.Board;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  Data source backed by a statistics file that is mapped into memory. Reads go directly to the mapped file
+ *  (no copying, no parsing), so the data source is ready immediately after opening. Updates are written into
+ *  the mapped file as well, so learned data survive restarts of the process.
+ *
+ *  File format (all numbers are 32-bit big-endian integers):
+ *
+ *  - header: magic number ("T3ST"), format version, number of positions (3^9), reserved (0)
+ *  - for each position, in the order of canonical keys (see Board.getCanonicalKey): winX, winO, ties
+ *
+ *  Entries for non-canonical position codes are present but unused, so any entry can be found by a simple
+ *  offset computation.
+ *
+ *  Updates are synchronized, reads are not: a read concurrent with an update may see the position half-updated.
+ *  Changes are guaranteed to be on disk after flush() or close().
+ */
+public class MappedStatisticsDataSource implements AdaptiveDataSource, Closeable {
+
+    public static final int MAGIC = 0x54335354;        // "T3ST"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 12;
+    private static final int FILE_SIZE = HEADER_SIZE + Board.POSITION_CODES * ENTRY_SIZE;
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final boolean readOnly;
+
+    /**
+     * If true, updates are ignored.
+     */
+    private volatile boolean locked;
+
+    private MappedStatisticsDataSource(Path file, boolean readOnly) throws IOException {
+        this.file = file;
+        this.readOnly = readOnly;
+        this.locked = readOnly;
+        if (readOnly) {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } else {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        }
+        try {
+            long size = channel.size();
+            if (size == 0 && !readOnly) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, Board.POSITION_CODES);
+                buffer.putInt(12, 0);
+            } else if (size != FILE_SIZE) {
+                throw new IOException("Statistics file " + file + " has wrong size: " + size + " (expected " + FILE_SIZE + ")");
+            } else {
+                buffer = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+                checkHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void checkHeader() throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("File " + file + " is not a statistics file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported version of statistics file " + file + ": " + version + " (supported: " + VERSION + ")");
+        }
+        int positions = buffer.getInt(8);
+        if (positions != Board.POSITION_CODES) {
+            throw new IOException("Statistics file " + file + " has wrong number of positions: " + positions);
+        }
+    }
+
+    /**
+     * Opens the statistics file for reading and updating. If the file does not exist (or is empty), it is created
+     * with no statistics.
+     */
+    public static MappedStatisticsDataSource open(Path file) throws IOException {
+        return new MappedStatisticsDataSource(file, false);
+    }
+
+    /**
+     * Opens the statistics file for reading only. Such data source is always locked.
+     */
+    public static MappedStatisticsDataSource openReadOnly(Path file) throws IOException {
+        return new MappedStatisticsDataSource(file, true);
+    }
+
+    /**
+     * Creates (or overwrites) the statistics file with the statistics taken from the given data source.
+     */
+    public static void save(Path file, DataSource source) throws IOException {
+        Files.deleteIfExists(file);
+        try (MappedStatisticsDataSource target = open(file)) {
+            Statistics statistics = new Statistics();
+            for (int code = 0; code < Board.POSITION_CODES; code++) {
+                Board board = Board.fromPositionCode(code);
+                if (board.isCanonical()) {
+                    source.getStatistics(board, statistics);
+                    target.put(code, statistics.getWinX(), statistics.getWinO(), statistics.getTies());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Statistics getStatistics(Board board) {
+        return getStatistics(board, new Statistics());
+    }
+
+    @Override
+    public Statistics getStatistics(Board board, Statistics statistics) {
+        int offset = getOffset(board.getCanonicalKey());
+        statistics.set(buffer.getInt(offset), buffer.getInt(offset + 4), buffer.getInt(offset + 8));
+        return statistics;
+    }
+
+    /**
+     * Updates statistics for a given board. Ignored if the data source is locked.
+     */
+    @Override
+    public synchronized void update(Board board, int deltaWinX, int deltaWinO, int deltaTie) {
+        if (!locked) {
+            add(board.getCanonicalKey(), deltaWinX, deltaWinO, deltaTie);
+        }
+    }
+
+    /**
+     * Applies the whole batch. Ignored if the data source is locked.
+     */
+    @Override
+    public synchronized void update(StatisticsBatch batch) {
+        if (!locked) {
+            batch.forEachPosition(this::add);
+        }
+    }
+
+    private void add(int key, int deltaWinX, int deltaWinO, int deltaTie) {
+        int offset = getOffset(key);
+        buffer.putInt(offset, buffer.getInt(offset) + deltaWinX);
+        buffer.putInt(offset + 4, buffer.getInt(offset + 4) + deltaWinO);
+        buffer.putInt(offset + 8, buffer.getInt(offset + 8) + deltaTie);
+    }
+
+    private void put(int key, int winX, int winO, int ties) {
+        int offset = getOffset(key);
+        buffer.putInt(offset, winX);
+        buffer.putInt(offset + 4, winO);
+        buffer.putInt(offset + 8, ties);
+    }
+
+    private static int getOffset(int key) {
+        return HEADER_SIZE + key * ENTRY_SIZE;
+    }
+
+    /**
+     * Makes sure all updates are written to the disk.
+     */
+    public synchronized void flush() {
+        if (!readOnly) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    @Override
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /**
+     * Locks (or unlocks) the data source for updates. A read-only data source cannot be unlocked.
+     */
+    public void setLocked(boolean locked) {
+        if (!locked && readOnly) {
+            throw new IllegalStateException("Statistics file " + file + " is open for reading only");
+        }
+        this.locked = locked;
+    }
+
+    @Override
+    public String getName() {
+        return file.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedStatisticsDataSource{" +
+                "file=" + file +
+                ", readOnly=" + readOnly +
+                ", locked=" + locked +
+                '}';
+    }
+}
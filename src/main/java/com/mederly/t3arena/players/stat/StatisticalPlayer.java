@@ -1,21 +1,18 @@
 package com.mederly.t3arena.players.stat;
 
 import com.mederly.t3arena.Board;
+import com.mederly.t3arena.BoardGeometry;
 import com.mederly.t3arena.GameState;
 import com.mederly.t3arena.players.EqualMoveSelector;
-import com.mederly.t3arena.players.PlayerBase;
+import com.mederly.t3arena.players.FieldMaskPlayerBase;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
-import static com.mederly.t3arena.Board.PLAYER_O;
-import static com.mederly.t3arena.Board.PLAYER_X;
-
 /**
  *  Player that bases its moves on statistical information about various positions.
  */
-public class StatisticalPlayer extends PlayerBase {
+public class StatisticalPlayer extends FieldMaskPlayerBase {
 
     /**
      * Source of statistical data.
@@ -32,6 +29,22 @@ public class StatisticalPlayer extends PlayerBase {
      */
     private EqualMoveSelector equalMoveSelector;
 
+    /**
+     * Statistics object reused for data source lookups.
+     */
+    private final Statistics statistics = new Statistics();
+
+    /**
+     * List of best moves, reused when selecting a move.
+     */
+    private final List<Integer> bestMoves = new ArrayList<>();
+
+    /**
+     * Board on which candidate moves are tried when selecting a move. (The player's own board is not touched,
+     * as it may be copied concurrently if the move is abandoned, see Player.onMoveSubstituted.)
+     */
+    private final Board workingBoard = new Board();
+
     public StatisticalPlayer(String name, DataSource dataSource, StatisticsInterpreter interpreter, EqualMoveSelector equalMoveSelector) {
         super(name);
         this.dataSource = dataSource;
@@ -40,31 +53,40 @@ public class StatisticalPlayer extends PlayerBase {
     }
 
     @Override
-    protected int selectMyMove(List<Integer> freeFields) {
+    public void beforeGame(byte side, BoardGeometry geometry) {
+        if (!geometry.isStandard()) {
+            throw new UnsupportedOperationException("Player " + getName() + " cannot play on " + geometry + " board");
+        }
+        super.beforeGame(side, geometry);
+    }
+
+    @Override
+    protected int selectMyMove(int freeFields) {
         Board board = gameState.getBoard();
 
         double maxValue = Double.MIN_VALUE;
-        List<Integer> bestMoves = new ArrayList<>();
+        bestMoves.clear();
 
-        for (int i = 0; i < freeFields.size(); i++) {
-            Integer field = freeFields.get(i);
-            Board boardAfter = new Board(board);
-            boardAfter.registerMove(side, field);
-            double value = interpreter.getValue(side, dataSource.getStatistics(boardAfter));
+        workingBoard.copyFrom(board);
+        for (; freeFields != 0; freeFields &= freeFields - 1) {
+            int field = Board.getFirstField(freeFields);
+            workingBoard.registerMove(side, field);
+            double value = interpreter.getValue(side, dataSource.getStatistics(workingBoard, statistics));
+            workingBoard.unregisterMove(field);
 
             // We should do some fractional arithmetic here. Comparing doubles for equality is a bit unreliable.
             if (bestMoves.isEmpty() || value > maxValue) {
                 bestMoves.clear();
-                bestMoves.add(i);
+                bestMoves.add(field);
                 maxValue = value;
             } else if (value == maxValue) {
-                bestMoves.add(i);
+                bestMoves.add(field);
             }
         }
         if (bestMoves.isEmpty()) {
             throw new IllegalStateException("No fields? Really? Board = " + board);
         }
-        return freeFields.get(equalMoveSelector.selectMove(bestMoves));
+        return equalMoveSelector.selectMove(bestMoves);
     }
 
     @Override
@@ -80,24 +102,7 @@ public class StatisticalPlayer extends PlayerBase {
     private void updateData(AdaptiveDataSource source, GameState gameState, List<Integer> moves) {
         Integer winner = gameState.getWinner();
         if (winner != null) {
-            Board board = new Board();
-            byte player = PLAYER_X;
-            Iterator<Integer> moveIterator = moves.iterator();
-            int deltaWinX = winner == PLAYER_X ? 1 : 0;
-            int deltaWinO = winner == PLAYER_O ? 1 : 0;
-            int deltaTie = winner == 0 ? 1 : 0;
-            for (;;) {
-                source.update(board, deltaWinX, deltaWinO, deltaTie);
-                if (moveIterator.hasNext()) {
-                    Integer nextMove = moveIterator.next();
-                    board = new Board(board);
-                    board.registerMove(player, nextMove);
-                    player = GameState.getOtherPlayer(player);
-                } else {
-                    // nothing more to do
-                    break;
-                }
-            }
+            source.updateGame(moves, winner);
         } else {
             throw new IllegalStateException("How to update the data when there's no winner resolution? state = " + gameState);
         }
@@ -36,6 +36,12 @@ public class Statistics {
         this.ties = ties;
     }
 
+    public void set(int winX, int winO, int ties) {
+        this.winX = winX;
+        this.winO = winO;
+        this.ties = ties;
+    }
+
     public void increment(int winner) {
         switch (winner) {
             case PLAYER_X: winX++; return;
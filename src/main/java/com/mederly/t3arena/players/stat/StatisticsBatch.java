@@ -0,0 +1,119 @@
+package com.mederly.t3arena.players.stat;
+
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.GameState;
+
+import java.util.List;
+
+import static com.mederly.t3arena.Board.PLAYER_O;
+import static com.mederly.t3arena.Board.PLAYER_X;
+
+/**
+ *  Aggregated statistics updates coming from one or more games. Deltas for the same position are coalesced,
+ *  so the whole batch can be applied to a data source in one pass, with a single update per position.
+ *
+ *  Positions are identified by canonical keys of boards (see Board.getCanonicalKey). Not thread-safe.
+ */
+public class StatisticsBatch {
+
+    /**
+     * Consumer of aggregated deltas.
+     */
+    @FunctionalInterface
+    public interface PositionDeltaConsumer {
+        void accept(int canonicalKey, int deltaWinX, int deltaWinO, int deltaTie);
+    }
+
+    /**
+     * Deltas for position with canonical key K are at indices K*3 (winX), K*3+1 (winO) and K*3+2 (ties).
+     */
+    private final int[] deltas = new int[Board.POSITION_CODES * 3];
+
+    /**
+     * Keys of positions having any deltas, in the order of their first occurrence.
+     */
+    private final int[] touchedKeys = new int[Board.POSITION_CODES];
+    private final boolean[] touched = new boolean[Board.POSITION_CODES];
+    private int touchedCount;
+
+    /**
+     * Number of games added.
+     */
+    private int games;
+
+    /**
+     * Adds results of a finished game: all positions of the game (from the empty board to the final one)
+     * get a win for X, a win for O or a tie, depending on the winner.
+     *
+     * @param winner 1 = PLAYER_X, 2 = PLAYER_O, 0 = tie
+     */
+    public void addGame(List<Integer> moves, int winner) {
+        int deltaWinX = winner == PLAYER_X ? 1 : 0;
+        int deltaWinO = winner == PLAYER_O ? 1 : 0;
+        int deltaTie = winner == 0 ? 1 : 0;
+        Board board = new Board();
+        byte player = PLAYER_X;
+        add(board.getCanonicalKey(), deltaWinX, deltaWinO, deltaTie);
+        for (Integer move : moves) {
+            board.registerMove(player, move);
+            player = GameState.getOtherPlayer(player);
+            add(board.getCanonicalKey(), deltaWinX, deltaWinO, deltaTie);
+        }
+        games++;
+    }
+
+    /**
+     * Adds deltas for a single position.
+     */
+    public void add(int canonicalKey, int deltaWinX, int deltaWinO, int deltaTie) {
+        if (!touched[canonicalKey]) {
+            touched[canonicalKey] = true;
+            touchedKeys[touchedCount++] = canonicalKey;
+        }
+        int index = canonicalKey * 3;
+        deltas[index] += deltaWinX;
+        deltas[index + 1] += deltaWinO;
+        deltas[index + 2] += deltaTie;
+    }
+
+    /**
+     * Passes aggregated deltas of all positions touched by the batch to the consumer.
+     */
+    public void forEachPosition(PositionDeltaConsumer consumer) {
+        for (int i = 0; i < touchedCount; i++) {
+            int key = touchedKeys[i];
+            int index = key * 3;
+            consumer.accept(key, deltas[index], deltas[index + 1], deltas[index + 2]);
+        }
+    }
+
+    /**
+     * Empties the batch, so it can be reused.
+     */
+    public void clear() {
+        for (int i = 0; i < touchedCount; i++) {
+            int key = touchedKeys[i];
+            touched[key] = false;
+            deltas[key * 3] = 0;
+            deltas[key * 3 + 1] = 0;
+            deltas[key * 3 + 2] = 0;
+        }
+        touchedCount = 0;
+        games = 0;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * @return Number of distinct positions touched by the batch.
+     */
+    public int getPositions() {
+        return touchedCount;
+    }
+
+    public boolean isEmpty() {
+        return touchedCount == 0;
+    }
+}
@@ -0,0 +1,268 @@
+package com.mederly.t3arena.players.tablebase;
+
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.BoardGeometry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.mederly.t3arena.Board.PLAYER_O;
+import static com.mederly.t3arena.Board.PLAYER_X;
+
+/**
+ *  Precomputed best moves and values for a set of positions on a board of given geometry (e.g. all reachable
+ *  positions on the standard board, or the opening positions of a larger one). Created by TablebaseGenerator,
+ *  stored in a compact file and loaded at startup; players based on PlayerBase consult it before their own logic.
+ *
+ *  Positions are stored in an open-addressing hash table using their Zobrist hashes (see Board.getZobristHash).
+ *  Each entry contains the position itself (both masks), so lookups are exact. A lookup needs no allocation.
+ *
+ *  File format (big-endian): magic number ("T3TB"), format version, board width, height, win length,
+ *  number of entries; then for each entry: X mask, O mask (ints), best moves mask (int), value (byte).
+ */
+public class Tablebase {
+
+    public static final int MAGIC = 0x54335442;        // "T3TB"
+    public static final int VERSION = 1;
+
+    /**
+     * Maximal number of positions in a tablebase (the table then has 2^30 slots, i.e. about 13 GB).
+     */
+    public static final int MAX_CAPACITY = 1 << 29;
+
+    /**
+     * Maximal number of entries accepted when loading a file. Larger counts are considered a corruption.
+     */
+    private static final int MAX_LOADED_ENTRIES = 1 << 28;
+
+    private final BoardGeometry geometry;
+
+    private final int[] xMasks;
+    private final int[] oMasks;
+
+    /**
+     * Best moves as field masks. Zero means the slot is empty (positions stored always have some moves).
+     */
+    private final int[] bestMoves;
+
+    /**
+     * Values of the positions for the side on turn: 100 = win, -100 = loss, 0 = tie (or unknown).
+     */
+    private final byte[] values;
+
+    private final int slotMask;
+
+    private int size;
+
+    /**
+     * Creates an empty tablebase that can hold at least the given number of positions.
+     *
+     * @throws IllegalArgumentException if the capacity is negative or greater than MAX_CAPACITY
+     */
+    public Tablebase(BoardGeometry geometry, int capacity) {
+        if (capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Illegal tablebase capacity: " + capacity + " (maximum: " + MAX_CAPACITY + ")");
+        }
+        this.geometry = geometry;
+        long minSlots = Math.max(capacity, 8) * 2L;                                   // load factor at most 1/2
+        int slots = (int) Long.highestOneBit(minSlots * 2 - 1);                       // at most 2^30
+        this.xMasks = new int[slots];
+        this.oMasks = new int[slots];
+        this.bestMoves = new int[slots];
+        this.values = new byte[slots];
+        this.slotMask = slots - 1;
+    }
+
+    /**
+     * Stores best moves and the value of the given position (replacing the existing entry, if any).
+     */
+    public void put(Board board, int bestMovesMask, int value) {
+        checkGeometry(board);
+        put(board.getMask(PLAYER_X), board.getMask(PLAYER_O), board.getZobristHash(), bestMovesMask, value);
+    }
+
+    private void put(int xMask, int oMask, long hash, int bestMovesMask, int value) {
+        if (bestMovesMask == 0) {
+            throw new IllegalArgumentException("No best moves for a position");
+        }
+        int slot = findSlot(xMask, oMask, hash);
+        if (bestMoves[slot] == 0) {
+            if (size >= (slotMask + 1) / 2) {
+                throw new IllegalStateException("Tablebase is full (" + size + " positions)");
+            }
+            size++;
+        }
+        xMasks[slot] = xMask;
+        oMasks[slot] = oMask;
+        bestMoves[slot] = bestMovesMask;
+        values[slot] = (byte) value;
+    }
+
+    /**
+     * @return Slot containing the position, or the empty slot where it should be put.
+     */
+    private int findSlot(int xMask, int oMask, long hash) {
+        int slot = (int) (hash ^ (hash >>> 32)) & slotMask;
+        while (bestMoves[slot] != 0 && (xMasks[slot] != xMask || oMasks[slot] != oMask)) {
+            slot = (slot + 1) & slotMask;
+        }
+        return slot;
+    }
+
+    private int findSlot(Board board) {
+        return findSlot(board.getMask(PLAYER_X), board.getMask(PLAYER_O), board.getZobristHash());
+    }
+
+    /**
+     * @return Best moves for the position as a field mask, or 0 if the position is not in the tablebase
+     * (or the board has a different geometry).
+     */
+    public int getBestMoves(Board board) {
+        if (!geometry.equals(board.getGeometry())) {
+            return 0;
+        }
+        return bestMoves[findSlot(board)];
+    }
+
+    /**
+     * @return Value of the position for the side on turn (100 = win, -100 = loss, 0 = tie or unknown).
+     * @throws IllegalArgumentException if the position is not in the tablebase
+     */
+    public int getValue(Board board) {
+        checkGeometry(board);
+        int slot = findSlot(board);
+        if (bestMoves[slot] == 0) {
+            throw new IllegalArgumentException("Position is not in the tablebase: " + board);
+        }
+        return values[slot];
+    }
+
+    public boolean contains(Board board) {
+        return getBestMoves(board) != 0;
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void checkGeometry(Board board) {
+        if (!geometry.equals(board.getGeometry())) {
+            throw new IllegalArgumentException("Tablebase is for " + geometry + " board, not for " + board.getGeometry());
+        }
+    }
+
+    /**
+     * Writes the tablebase to a file.
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(geometry.getWidth());
+            out.writeInt(geometry.getHeight());
+            out.writeInt(geometry.getWinLength());
+            out.writeInt(size);
+            for (int slot = 0; slot <= slotMask; slot++) {
+                if (bestMoves[slot] != 0) {
+                    out.writeInt(xMasks[slot]);
+                    out.writeInt(oMasks[slot]);
+                    out.writeInt(bestMoves[slot]);
+                    out.writeByte(values[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the tablebase from a file written by save().
+     *
+     * @throws IOException also if the file is corrupt, e.g. an entry is not a legal position on the board
+     */
+    public static Tablebase load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File " + file + " is not a tablebase");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version of tablebase file " + file + ": " + version + " (supported: " + VERSION + ")");
+            }
+            BoardGeometry geometry = new BoardGeometry(in.readInt(), in.readInt(), in.readInt());
+            if (geometry.isStandard()) {
+                geometry = BoardGeometry.STANDARD;
+            }
+            int entries = in.readInt();
+            if (entries < 0 || entries > getMaxEntries(geometry)) {
+                throw new IOException("Illegal number of entries in tablebase file " + file + ": " + entries);
+            }
+            Tablebase tablebase = new Tablebase(geometry, entries);
+            for (int i = 0; i < entries; i++) {
+                int xMask = in.readInt();
+                int oMask = in.readInt();
+                int bestMovesMask = in.readInt();
+                byte value = in.readByte();
+                checkEntry(file, geometry, xMask, oMask, bestMovesMask);
+                tablebase.put(xMask, oMask, tablebase.getZobristHash(xMask, oMask), bestMovesMask, value);
+            }
+            return tablebase;
+        }
+    }
+
+    /**
+     * @return The number of entries a valid file can have: at most one for each possible position
+     * (3^fields, although fewer are legal), and not more than MAX_LOADED_ENTRIES.
+     */
+    private static int getMaxEntries(BoardGeometry geometry) {
+        long positions = 1;
+        for (int i = 0; i < geometry.getFieldCount() && positions < MAX_LOADED_ENTRIES; i++) {
+            positions *= 3;
+        }
+        return (int) Math.min(positions, MAX_LOADED_ENTRIES);
+    }
+
+    /**
+     * Checks that the entry describes a legal position on the board, and that the best moves are free fields.
+     */
+    private static void checkEntry(Path file, BoardGeometry geometry, int xMask, int oMask, int bestMovesMask)
+            throws IOException {
+        int fullMask = geometry.getFullMask();
+        int xCount = Integer.bitCount(xMask);
+        int oCount = Integer.bitCount(oMask);
+        int freeFields = fullMask & ~(xMask | oMask);
+        if ((xMask & ~fullMask) != 0 || (oMask & ~fullMask) != 0 || (xMask & oMask) != 0
+                || (xCount != oCount && xCount != oCount + 1)
+                || bestMovesMask == 0 || (bestMovesMask & ~freeFields) != 0) {
+            throw new IOException("Illegal entry in tablebase file " + file + " for " + geometry + " board: X mask = "
+                    + Integer.toHexString(xMask) + ", O mask = " + Integer.toHexString(oMask) + ", best moves = "
+                    + Integer.toHexString(bestMovesMask));
+        }
+    }
+
+    private long getZobristHash(int xMask, int oMask) {
+        long hash = 0;
+        for (int fields = xMask; fields != 0; fields &= fields - 1) {
+            hash ^= geometry.getZobristKey(PLAYER_X, Board.getFirstField(fields));
+        }
+        for (int fields = oMask; fields != 0; fields &= fields - 1) {
+            hash ^= geometry.getZobristKey(PLAYER_O, Board.getFirstField(fields));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "Tablebase{" +
+                "geometry=" + geometry +
+                ", size=" + size +
+                '}';
+    }
+}
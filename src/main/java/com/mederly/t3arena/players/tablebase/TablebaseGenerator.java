@@ -0,0 +1,128 @@
+package com.mederly.t3arena.players.tablebase;
+
+import com.mederly.t3arena.Board;
+import com.mederly.t3arena.BoardGeometry;
+import com.mederly.t3arena.players.minimax.AlphaBetaSearcher;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.mederly.t3arena.Board.PLAYER_O;
+import static com.mederly.t3arena.Board.PLAYER_X;
+
+/**
+ *  Creates tablebases: finds all positions reachable within a given number of moves from the empty board
+ *  and solves each of them by alpha-beta search.
+ *
+ *  For the standard board, all reachable positions can be solved completely (in well under a second), so
+ *  a player using the tablebase plays perfectly. For larger boards, the number of moves (covering e.g. the opening)
+ *  and the search depth have to be limited; positions not solved completely are stored with the value of 0.
+ */
+public class TablebaseGenerator {
+
+    private final BoardGeometry geometry;
+
+    /**
+     * Positions having at most this number of signs are included.
+     */
+    private final int maxMoves;
+
+    private final AlphaBetaSearcher searcher;
+
+    /**
+     * Generator of a complete tablebase: all reachable positions, solved until the end of the game.
+     */
+    public TablebaseGenerator(BoardGeometry geometry) {
+        this(geometry, geometry.getFieldCount(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxMoves Positions having at most this number of signs are included.
+     * @param searchDepth Maximum depth of the search used to solve the positions.
+     */
+    public TablebaseGenerator(BoardGeometry geometry, int maxMoves, int searchDepth) {
+        if (maxMoves < 0) {
+            throw new IllegalArgumentException("Illegal number of moves: " + maxMoves);
+        }
+        this.geometry = geometry;
+        this.maxMoves = maxMoves;
+        this.searcher = new AlphaBetaSearcher(searchDepth);
+    }
+
+    public Tablebase generate() {
+        Set<Long> positions = new HashSet<>();
+        collectPositions(new Board(geometry), positions);
+        Tablebase tablebase = new Tablebase(geometry, positions.size());
+        for (long position : positions) {
+            Board board = toBoard(position);
+            int bestMoves = 0;
+            for (int field : searcher.findBestMoves(board)) {
+                bestMoves |= 1 << (field - 1);
+            }
+            tablebase.put(board, bestMoves, searcher.getBestValue());
+        }
+        return tablebase;
+    }
+
+    /**
+     * Collects unfinished positions (as X and O masks packed into a long) reachable from the board.
+     */
+    private void collectPositions(Board board, Set<Long> positions) {
+        if (board.getWinner() != null || !positions.add(toPosition(board))) {
+            return;
+        }
+        int moves = Board.getFieldCount(geometry.getFullMask() & ~board.getFreeFieldsMask());
+        if (moves < maxMoves) {
+            byte side = board.getPlayerOnTurn();
+            for (int fields = board.getFreeFieldsMask(); fields != 0; fields &= fields - 1) {
+                int field = Board.getFirstField(fields);
+                board.registerMove(side, field);
+                collectPositions(board, positions);
+                board.unregisterMove(field);
+            }
+        }
+    }
+
+    private static long toPosition(Board board) {
+        return (long) board.getMask(PLAYER_X) << 32 | board.getMask(PLAYER_O) & 0xFFFFFFFFL;
+    }
+
+    private Board toBoard(long position) {
+        Board board = new Board(geometry);
+        int xMask = (int) (position >>> 32);
+        int oMask = (int) position;
+        for (int fields = xMask; fields != 0; fields &= fields - 1) {
+            board.registerMove(PLAYER_X, Board.getFirstField(fields));
+        }
+        for (int fields = oMask; fields != 0; fields &= fields - 1) {
+            board.registerMove(PLAYER_O, Board.getFirstField(fields));
+        }
+        return board;
+    }
+
+    /**
+     * Generates a tablebase and writes it into a file. Arguments: file name, and optionally width, height,
+     * win length, maximum number of moves, and search depth (the standard board, completely solved, by default).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: TablebaseGenerator <file> [<width> <height> <win length> [<max moves> [<search depth>]]]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        BoardGeometry geometry = args.length > 3 ?
+                new BoardGeometry(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3])) :
+                BoardGeometry.STANDARD;
+        int maxMoves = args.length > 4 ? Integer.parseInt(args[4]) : geometry.getFieldCount();
+        int searchDepth = args.length > 5 ? Integer.parseInt(args[5]) : Integer.MAX_VALUE;
+
+        long start = System.currentTimeMillis();
+        Tablebase tablebase = new TablebaseGenerator(geometry, maxMoves, searchDepth).generate();
+        tablebase.save(file);
+        System.out.println("Tablebase for " + tablebase.size() + " positions on " + geometry + " board written to "
+                + file + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
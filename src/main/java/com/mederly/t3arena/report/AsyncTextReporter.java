@@ -0,0 +1,110 @@
+package com.mederly.t3arena.report;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ *  Reporter that formats the events in the calling threads but writes them in a background thread,
+ *  in batches, through a buffered writer. So the players do not wait for the (synchronized) console output.
+ *
+ *  If the writer cannot keep up, the queue of lines eventually fills up and the callers are blocked until
+ *  there is room again. The reporter has to be closed to get all the lines written.
+ */
+public class AsyncTextReporter extends TextReporter implements Closeable {
+
+    private static final int DEFAULT_CAPACITY = 65536;
+
+    /**
+     * Marks the end of the stream of lines.
+     */
+    private static final String END = new String("END");
+
+    private final BlockingQueue<String> queue;
+
+    private final Writer writer;
+
+    private final Thread writerThread;
+
+    private volatile IOException writeException;
+
+    /**
+     * Creates a reporter writing to the standard output.
+     */
+    public AsyncTextReporter() {
+        this(System.out, DEFAULT_CAPACITY);
+    }
+
+    public AsyncTextReporter(OutputStream outputStream, int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16);
+        this.writerThread = new Thread(this::writeLines, "AsyncTextReporter-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    protected void println(String line) {
+        if (writeException != null) {
+            return;         // nobody would write the line anyway
+        }
+        try {
+            queue.put(line);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLines() {
+        List<String> batch = new ArrayList<>();
+        try {
+            for (;;) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (String line : batch) {
+                    if (line == END) {
+                        writer.flush();
+                        return;
+                    }
+                    writer.write(line);
+                    writer.write(System.lineSeparator());
+                }
+                batch.clear();
+                if (queue.isEmpty()) {
+                    writer.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            writeException = e;
+            queue.clear();      // do not block the producers
+        }
+    }
+
+    /**
+     * Writes out all pending lines and stops the background thread. The underlying stream is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (writerThread.isAlive()) {
+            println(END);
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writeException != null) {
+            throw writeException;
+        }
+    }
+}
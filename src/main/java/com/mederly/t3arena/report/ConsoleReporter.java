@@ -0,0 +1,12 @@
+package com.mederly.t3arena.report;
+
+/**
+ *  Reporter that prints all events to the standard output, as they happen.
+ */
+public class ConsoleReporter extends TextReporter {
+
+    @Override
+    protected void println(String line) {
+        System.out.println(line);
+    }
+}
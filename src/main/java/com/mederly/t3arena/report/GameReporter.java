@@ -0,0 +1,55 @@
+package com.mederly.t3arena.report;
+
+import com.mederly.t3arena.GameState;
+import com.mederly.t3arena.Match;
+import com.mederly.t3arena.Player;
+import com.mederly.t3arena.TimeControl;
+
+/**
+ *  Receives events from matches and games, e.g. in order to print them.
+ *
+ *  In parallel matches the methods are called from multiple threads concurrently. Events of a single game
+ *  are always reported by a single thread, though.
+ */
+public interface GameReporter {
+
+    /**
+     * A match is starting.
+     */
+    void onMatchStart(Match match, boolean parallel);
+
+    /**
+     * A match has finished.
+     */
+    void onMatchEnd(Match match);
+
+    /**
+     * A game within a match is starting.
+     */
+    void onGameStart(Match match, Player playerX, Player playerO, int round, int gameNumber);
+
+    /**
+     * A move was made. Called before the move is registered in the game state, so the game state shows
+     * the player that made the move as the one on turn.
+     */
+    void onMove(GameState gameState, int move);
+
+    /**
+     * The player on turn ran out of time (see TimeControl). Called before the substituted move (if any) is reported.
+     */
+    void onTimeout(GameState gameState, TimeControl.TimeoutPolicy policy);
+
+    /**
+     * A game has finished.
+     *
+     * @param winner 1 = PLAYER_X, 2 = PLAYER_O, 0 = tie
+     */
+    void onGameEnd(GameState gameState, int winner);
+
+    /**
+     * The result of a game was counted into the match score.
+     *
+     * @param winner The winning player or null in case of a tie.
+     */
+    void onGameScored(Match match, Player winner);
+}
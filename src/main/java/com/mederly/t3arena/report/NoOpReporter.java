@@ -0,0 +1,42 @@
+package com.mederly.t3arena.report;
+
+import com.mederly.t3arena.GameState;
+import com.mederly.t3arena.Match;
+import com.mederly.t3arena.Player;
+import com.mederly.t3arena.TimeControl;
+
+/**
+ *  Reporter that ignores all events. Useful for large tournaments, where only the final results matter.
+ */
+public class NoOpReporter implements GameReporter {
+
+    public static final NoOpReporter INSTANCE = new NoOpReporter();
+
+    @Override
+    public void onMatchStart(Match match, boolean parallel) {
+    }
+
+    @Override
+    public void onMatchEnd(Match match) {
+    }
+
+    @Override
+    public void onGameStart(Match match, Player playerX, Player playerO, int round, int gameNumber) {
+    }
+
+    @Override
+    public void onMove(GameState gameState, int move) {
+    }
+
+    @Override
+    public void onTimeout(GameState gameState, TimeControl.TimeoutPolicy policy) {
+    }
+
+    @Override
+    public void onGameEnd(GameState gameState, int winner) {
+    }
+
+    @Override
+    public void onGameScored(Match match, Player winner) {
+    }
+}
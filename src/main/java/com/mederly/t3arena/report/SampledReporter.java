@@ -0,0 +1,86 @@
+package com.mederly.t3arena.report;
+
+import com.mederly.t3arena.GameState;
+import com.mederly.t3arena.Match;
+import com.mederly.t3arena.Player;
+import com.mederly.t3arena.TimeControl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Reporter that passes events of only every n-th game to its delegate. Match-level events are always passed.
+ */
+public class SampledReporter implements GameReporter {
+
+    private final GameReporter delegate;
+
+    /**
+     * Every n-th game is reported.
+     */
+    private final int sampleEvery;
+
+    /**
+     * Games started so far.
+     */
+    private final AtomicLong games = new AtomicLong();
+
+    /**
+     * Is the game currently played by this thread reported? (Events of a game are reported by a single thread.)
+     */
+    private final ThreadLocal<Boolean> currentGameSampled = ThreadLocal.withInitial(() -> false);
+
+    public SampledReporter(GameReporter delegate, int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("Illegal sampling interval: " + sampleEvery);
+        }
+        this.delegate = delegate;
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public void onMatchStart(Match match, boolean parallel) {
+        delegate.onMatchStart(match, parallel);
+    }
+
+    @Override
+    public void onMatchEnd(Match match) {
+        delegate.onMatchEnd(match);
+    }
+
+    @Override
+    public void onGameStart(Match match, Player playerX, Player playerO, int round, int gameNumber) {
+        boolean sampled = games.getAndIncrement() % sampleEvery == 0;
+        currentGameSampled.set(sampled);
+        if (sampled) {
+            delegate.onGameStart(match, playerX, playerO, round, gameNumber);
+        }
+    }
+
+    @Override
+    public void onMove(GameState gameState, int move) {
+        if (currentGameSampled.get()) {
+            delegate.onMove(gameState, move);
+        }
+    }
+
+    @Override
+    public void onTimeout(GameState gameState, TimeControl.TimeoutPolicy policy) {
+        if (currentGameSampled.get()) {
+            delegate.onTimeout(gameState, policy);
+        }
+    }
+
+    @Override
+    public void onGameEnd(GameState gameState, int winner) {
+        if (currentGameSampled.get()) {
+            delegate.onGameEnd(gameState, winner);
+        }
+    }
+
+    @Override
+    public void onGameScored(Match match, Player winner) {
+        if (currentGameSampled.get()) {
+            delegate.onGameScored(match, winner);
+        }
+    }
+}
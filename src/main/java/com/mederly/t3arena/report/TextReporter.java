@@ -0,0 +1,54 @@
+package com.mederly.t3arena.report;
+
+import com.mederly.t3arena.GameState;
+import com.mederly.t3arena.Match;
+import com.mederly.t3arena.Player;
+import com.mederly.t3arena.TimeControl;
+
+/**
+ *  Reporter that describes the events as lines of text. Subclasses decide where the lines go.
+ */
+public abstract class TextReporter implements GameReporter {
+
+    /**
+     * Outputs a single line of the report.
+     */
+    protected abstract void println(String line);
+
+    @Override
+    public void onMatchStart(Match match, boolean parallel) {
+        println("Starting " + (parallel ? "parallel " : "") + "match between " + match.getPlayerName1() + " and " + match.getPlayerName2()
+                + " having " + match.getRounds() + " rounds"
+                + (match.getGeometry().isStandard() ? "" : " on " + match.getGeometry() + " board"));
+    }
+
+    @Override
+    public void onMatchEnd(Match match) {
+        println(match.getResultAsString());
+    }
+
+    @Override
+    public void onGameStart(Match match, Player playerX, Player playerO, int round, int gameNumber) {
+        println("Running game with X=" + playerX + ", O=" + playerO + " (round=" + round + ", game=" + gameNumber + ")");
+    }
+
+    @Override
+    public void onMove(GameState gameState, int move) {
+        println("Player " + gameState.getTurnDescription() + " played: " + move);
+    }
+
+    @Override
+    public void onTimeout(GameState gameState, TimeControl.TimeoutPolicy policy) {
+        println("Player " + gameState.getTurnDescription() + " ran out of time (" + policy + ")");
+    }
+
+    @Override
+    public void onGameEnd(GameState gameState, int winner) {
+        println("Winner: " + winner);
+    }
+
+    @Override
+    public void onGameScored(Match match, Player winner) {
+        println("Winner: " + winner + "; score is " + match.getWins1() + ":" + match.getTies() + ":" + match.getWins2());
+    }
+}
@@ -0,0 +1,157 @@
+package com.mederly.t3arena.tournament;
+
+import com.mederly.t3arena.Match;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *  Results of a tournament: games won, lost and tied between each pair of players, total scores and ratings.
+ *  A win counts as 1 point, a tie as 1/2.
+ */
+public class CrossTable {
+
+    private final List<String> names;
+
+    /**
+     * wins[i][j] = games won by player i against player j
+     */
+    private final int[][] wins;
+
+    /**
+     * ties[i][j] = ties[j][i] = games tied between players i and j
+     */
+    private final int[][] ties;
+
+    /**
+     * Extra points (e.g. for byes in a Swiss tournament); they count to the score but not to the ratings.
+     */
+    private final double[] bonus;
+
+    public CrossTable(List<String> names) {
+        this.names = new ArrayList<>(names);
+        int n = names.size();
+        this.wins = new int[n][n];
+        this.ties = new int[n][n];
+        this.bonus = new double[n];
+    }
+
+    /**
+     * Adds results of a finished match between players i (player 1 of the match) and j (player 2).
+     */
+    public synchronized void addMatch(int i, int j, Match match) {
+        wins[i][j] += match.getWins1();
+        wins[j][i] += match.getWins2();
+        ties[i][j] += match.getTies();
+        ties[j][i] += match.getTies();
+    }
+
+    public synchronized void addBonus(int i, double points) {
+        bonus[i] += points;
+    }
+
+    public int getPlayers() {
+        return names.size();
+    }
+
+    public String getName(int i) {
+        return names.get(i);
+    }
+
+    public synchronized int getWins(int i, int j) {
+        return wins[i][j];
+    }
+
+    public synchronized int getTies(int i, int j) {
+        return ties[i][j];
+    }
+
+    public synchronized boolean havePlayed(int i, int j) {
+        return wins[i][j] + wins[j][i] + ties[i][j] > 0;
+    }
+
+    public synchronized double getScore(int i) {
+        double score = bonus[i];
+        for (int j = 0; j < names.size(); j++) {
+            score += wins[i][j] + ties[i][j] / 2.0;
+        }
+        return score;
+    }
+
+    public synchronized int getGames(int i) {
+        int games = 0;
+        for (int j = 0; j < names.size(); j++) {
+            games += wins[i][j] + wins[j][i] + ties[i][j];
+        }
+        return games;
+    }
+
+    /**
+     * @return Player indices ordered by score (descending); players with equal scores keep their original order.
+     */
+    public synchronized List<Integer> getStandings() {
+        List<Integer> standings = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            standings.add(i);
+        }
+        double[] scores = new double[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            scores[i] = getScore(i);
+        }
+        standings.sort((a, b) -> Double.compare(scores[b], scores[a]));
+        return Collections.unmodifiableList(standings);
+    }
+
+    /**
+     * Computes Elo-like ratings from all the games (see EloRatings).
+     */
+    public synchronized double[] getRatings() {
+        return EloRatings.compute(wins, ties);
+    }
+
+    /**
+     * @return The table as text: one row per player (ordered by standings), with wins-ties-losses against each
+     * of the opponents, the total score, number of games and rating.
+     */
+    public synchronized String getAsString() {
+        List<Integer> standings = getStandings();
+        double[] ratings = getRatings();
+        int n = names.size();
+
+        String[][] cells = new String[n][n];
+        int cellWidth = 5;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j) {
+                    cells[i][j] = "x";
+                } else if (!havePlayed(i, j)) {
+                    cells[i][j] = ".";
+                } else {
+                    cells[i][j] = wins[i][j] + "-" + ties[i][j] + "-" + wins[j][i];
+                }
+                cellWidth = Math.max(cellWidth, cells[i][j].length());
+            }
+        }
+        int nameWidth = 4;
+        for (String name : names) {
+            nameWidth = Math.max(nameWidth, name.length());
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%3s  %-" + nameWidth + "s", "#", "Name"));
+        for (int c = 0; c < n; c++) {
+            sb.append(String.format("  %" + cellWidth + "s", c + 1));
+        }
+        sb.append(String.format("  %9s  %7s  %6s%n", "Score", "Games", "Elo"));
+        for (int r = 0; r < n; r++) {
+            int i = standings.get(r);
+            sb.append(String.format("%3d  %-" + nameWidth + "s", r + 1, names.get(i)));
+            for (int c = 0; c < n; c++) {
+                sb.append(String.format("  %" + cellWidth + "s", cells[i][standings.get(c)]));
+            }
+            sb.append(String.format("  %9.1f  %7d  %6.0f%n", getScore(i), getGames(i), ratings[i]));
+        }
+        return sb.toString();
+    }
+}
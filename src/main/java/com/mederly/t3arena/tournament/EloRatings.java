@@ -0,0 +1,64 @@
+package com.mederly.t3arena.tournament;
+
+import java.util.Arrays;
+
+/**
+ *  Computes Elo-scaled ratings from game results, as a maximum likelihood estimate in the Bradley-Terry model
+ *  (a tie counts as half a win and half a loss). Unlike incremental Elo updates, the result does not depend
+ *  on the order of the games.
+ *
+ *  To keep the ratings finite for players that won (or lost) everything, each player is assumed to have
+ *  tied one virtual game against a player rated 1500, which also anchors the scale.
+ */
+public class EloRatings {
+
+    public static final double BASE_RATING = 1500;
+
+    private static final int MAX_ITERATIONS = 10000;
+    private static final double PRECISION = 1e-9;
+
+    /**
+     * @param wins wins[i][j] = games won by player i against player j
+     * @param ties ties[i][j] = games tied between players i and j (symmetric)
+     * @return Ratings of the players.
+     */
+    public static double[] compute(int[][] wins, int[][] ties) {
+        int n = wins.length;
+        double[] scores = new double[n];         // points, including the virtual tie
+        for (int i = 0; i < n; i++) {
+            scores[i] = 0.5;
+            for (int j = 0; j < n; j++) {
+                scores[i] += wins[i][j] + ties[i][j] / 2.0;
+            }
+        }
+
+        // Minorization-maximization iterations (Hunter, 2004)
+        double[] strength = new double[n];
+        Arrays.fill(strength, 1.0);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double maxChange = 0;
+            double[] next = new double[n];
+            for (int i = 0; i < n; i++) {
+                double denominator = 1.0 / (strength[i] + 1.0);       // the virtual game
+                for (int j = 0; j < n; j++) {
+                    int games = wins[i][j] + wins[j][i] + ties[i][j];
+                    if (i != j && games > 0) {
+                        denominator += games / (strength[i] + strength[j]);
+                    }
+                }
+                next[i] = scores[i] / denominator;
+                maxChange = Math.max(maxChange, Math.abs(Math.log(next[i] / strength[i])));
+            }
+            strength = next;
+            if (maxChange < PRECISION) {
+                break;
+            }
+        }
+
+        double[] ratings = new double[n];
+        for (int i = 0; i < n; i++) {
+            ratings[i] = BASE_RATING + 400 * Math.log10(strength[i]);
+        }
+        return ratings;
+    }
+}
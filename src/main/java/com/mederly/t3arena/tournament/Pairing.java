@@ -0,0 +1,23 @@
+package com.mederly.t3arena.tournament;
+
+/**
+ *  How the players of a tournament are paired into matches.
+ */
+public enum Pairing {
+
+    /**
+     * Everybody plays everybody else once.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * A given number of rounds; in each round, players with similar scores so far play each other
+     * (avoiding repeated pairings if possible). With an odd number of players, one of them has a bye.
+     */
+    SWISS,
+
+    /**
+     * The first player (the challenger) plays everybody else; the others do not play each other.
+     */
+    GAUNTLET
+}
@@ -0,0 +1,224 @@
+package com.mederly.t3arena.tournament;
+
+import com.mederly.t3arena.BoardGeometry;
+import com.mederly.t3arena.Match;
+import com.mederly.t3arena.PlayerFactory;
+import com.mederly.t3arena.TimeControl;
+import com.mederly.t3arena.distributed.Coordinator;
+import com.mederly.t3arena.report.GameReporter;
+import com.mederly.t3arena.report.NoOpReporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *  A tournament: a set of players paired into matches (see Pairing). The results are collected in a cross-table,
+ *  along with the ratings of the players.
+ *
+ *  If a pool is set, all matches of a round (for round-robin and gauntlet: all the matches) run in parallel,
+ *  and so do the games within the matches. If a coordinator is set, the matches are played by worker processes.
+ */
+public class Tournament {
+
+    private final Pairing pairing;
+
+    /**
+     * How many rounds (i.e. pairs of games) are in each match.
+     */
+    private final int roundsInMatch;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<PlayerFactory> factories = new ArrayList<>();
+
+    private BoardGeometry geometry = BoardGeometry.STANDARD;
+
+    private TimeControl timeControl;
+
+    /**
+     * Pool used to run the matches in parallel. If null, everything runs sequentially.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * If not null, the matches are played by worker processes (players must be in the standard registry).
+     */
+    private Coordinator coordinator;
+
+    private GameReporter reporter = NoOpReporter.INSTANCE;
+
+    /**
+     * Number of rounds of a Swiss tournament. If 0, it is derived from the number of players.
+     */
+    private int swissRounds;
+
+    private final List<Match> matches = new ArrayList<>();
+
+    private CrossTable crossTable;
+
+    public Tournament(Pairing pairing, int roundsInMatch) {
+        if (roundsInMatch < 1) {
+            throw new IllegalArgumentException("Illegal number of rounds in a match: " + roundsInMatch);
+        }
+        this.pairing = pairing;
+        this.roundsInMatch = roundsInMatch;
+    }
+
+    /**
+     * Adds a player. Its name is taken from the factory (see PlayerFactory.getPlayerName), and must be unique.
+     * For gauntlet tournaments, the first player added is the challenger.
+     */
+    public void addPlayer(PlayerFactory factory) {
+        String name = factory.getPlayerName();
+        if (names.contains(name)) {
+            throw new IllegalArgumentException("Player " + name + " is already in the tournament");
+        }
+        names.add(name);
+        factories.add(factory);
+    }
+
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry;
+    }
+
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void setCoordinator(Coordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Sets where the progress of the matches is reported. By default, nothing is reported.
+     */
+    public void setReporter(GameReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    public void setSwissRounds(int swissRounds) {
+        this.swissRounds = swissRounds;
+    }
+
+    /**
+     * Plays all the matches of the tournament.
+     */
+    public void run() {
+        if (names.size() < 2) {
+            throw new IllegalStateException("A tournament needs at least two players, having " + names.size());
+        }
+        crossTable = new CrossTable(names);
+        matches.clear();
+        switch (pairing) {
+            case ROUND_ROBIN: runRound(getRoundRobinPairs()); break;
+            case GAUNTLET: runRound(getGauntletPairs()); break;
+            case SWISS: runSwiss(); break;
+            default: throw new AssertionError("Unknown pairing: " + pairing);
+        }
+    }
+
+    private List<int[]> getRoundRobinPairs() {
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = i + 1; j < names.size(); j++) {
+                pairs.add(new int[] { i, j });
+            }
+        }
+        return pairs;
+    }
+
+    private List<int[]> getGauntletPairs() {
+        List<int[]> pairs = new ArrayList<>();
+        for (int j = 1; j < names.size(); j++) {
+            pairs.add(new int[] { 0, j });
+        }
+        return pairs;
+    }
+
+    private void runSwiss() {
+        int rounds = swissRounds > 0 ? swissRounds : 32 - Integer.numberOfLeadingZeros(names.size() - 1);
+        for (int round = 1; round <= rounds; round++) {
+            runRound(getSwissPairs());
+        }
+    }
+
+    /**
+     * Pairs players having similar scores, avoiding players that have already met if possible.
+     * With an odd number of players, the lowest-ranked player is given a bye, worth half of the points of a match.
+     */
+    private List<int[]> getSwissPairs() {
+        List<Integer> unpaired = new ArrayList<>(crossTable.getStandings());
+        if (unpaired.size() % 2 == 1) {
+            int bye = unpaired.remove(unpaired.size() - 1);
+            crossTable.addBonus(bye, roundsInMatch);        // 2 * roundsInMatch games, half of the points
+        }
+        List<int[]> pairs = new ArrayList<>();
+        while (!unpaired.isEmpty()) {
+            int first = unpaired.remove(0);
+            int opponentIndex = 0;
+            for (int k = 0; k < unpaired.size(); k++) {
+                if (!crossTable.havePlayed(first, unpaired.get(k))) {
+                    opponentIndex = k;
+                    break;
+                }
+            }
+            pairs.add(new int[] { first, unpaired.remove(opponentIndex) });
+        }
+        return pairs;
+    }
+
+    /**
+     * Runs the matches for given pairs of players and records the results.
+     */
+    private void runRound(List<int[]> pairs) {
+        List<CompletableFuture<?>> running = new ArrayList<>();
+        for (int[] pair : pairs) {
+            Match match = new Match(factories.get(pair[0]), factories.get(pair[1]), roundsInMatch, geometry);
+            match.setReporter(reporter);
+            match.setTimeControl(timeControl);
+            matches.add(match);
+            if (coordinator != null) {
+                running.add(coordinator.submit(match).thenRun(() -> crossTable.addMatch(pair[0], pair[1], match)));
+            } else if (pool != null) {
+                running.add(CompletableFuture.runAsync(() -> {
+                    match.run(pool);
+                    crossTable.addMatch(pair[0], pair[1], match);
+                }, pool));
+            } else {
+                match.run();
+                crossTable.addMatch(pair[0], pair[1], match);
+            }
+        }
+        for (CompletableFuture<?> task : running) {
+            task.join();
+        }
+    }
+
+    public Pairing getPairing() {
+        return pairing;
+    }
+
+    public List<String> getPlayerNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @return Matches played, in the order they were scheduled.
+     */
+    public List<Match> getMatches() {
+        return Collections.unmodifiableList(matches);
+    }
+
+    /**
+     * @return Results of the tournament (null if it was not run yet).
+     */
+    public CrossTable getCrossTable() {
+        return crossTable;
+    }
+}